@@ -0,0 +1,73 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModuleInfoWritingBenchmark {
+    // requires of each kind, and as many exported packages
+    @Param({"10", "100", "1000"})
+    public int modules;
+
+    private ModuleDeclaration declaration;
+    private Set<String> requireStaticTransitive;
+    private Set<String> requireTransitive;
+    private Set<String> requireStatic;
+    private Set<String> require;
+
+    private static Set<String> names(String prefix, int count) {
+        var names = new TreeSet<String>();
+        for (int i = 0; i < count; i++) {
+            names.add("bench." + prefix + ".module" + i);
+        }
+        return names;
+    }
+
+    @Setup
+    public void setup() {
+        var exports = new ArrayList<ModuleDeclaration.Target>();
+        for (int i = 0; i < modules; i++) {
+            exports.add(new ModuleDeclaration.Target("bench.api.pkg" + i, i % 2 == 0 ? List.of() : List.of("bench.friend")));
+        }
+        declaration = new ModuleDeclaration(
+            "bench.module",
+            false,
+            false,
+            false,
+            List.of(),
+            List.of("bench.api.Service"),
+            List.of(new ModuleDeclaration.Provides("bench.api.Service", List.of("bench.impl.ServiceImpl"))),
+            exports,
+            List.of()
+        );
+        requireStaticTransitive = names("statictransitive", modules);
+        requireTransitive = names("transitive", modules);
+        requireStatic = names("static", modules);
+        require = names("runtime", modules);
+    }
+
+    @Benchmark
+    public String source() {
+        return GenerateModuleInfoAction.moduleInfoSource(declaration, requireStaticTransitive, requireTransitive, requireStatic, require);
+    }
+
+    @Benchmark
+    public byte[] bytecode() throws IOException {
+        return GenerateModuleInfoAction.moduleInfoClass(declaration, requireStaticTransitive, requireTransitive, requireStatic, require);
+    }
+}
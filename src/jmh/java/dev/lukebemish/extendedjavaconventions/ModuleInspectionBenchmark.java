@@ -0,0 +1,84 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModuleInspectionBenchmark {
+    public enum Kind {
+        EXPLICIT,
+        AUTOMATIC,
+        DERIVED
+    }
+
+    @Param
+    public Kind kind;
+
+    // class entries beside the descriptor, which reading the identity should never need
+    @Param({"10", "10000"})
+    public int entries;
+
+    private Path directory;
+    private File jar;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("module-inspection");
+        jar = directory.resolve("bench-library-1.0.0.jar").toFile();
+        var manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (kind == Kind.AUTOMATIC) {
+            manifest.getMainAttributes().putValue("Automatic-Module-Name", "bench.library");
+        }
+        try (var out = new JarOutputStream(Files.newOutputStream(jar.toPath()), manifest)) {
+            if (kind == Kind.EXPLICIT) {
+                var writer = new ModuleInfoClassWriter("bench.library", false);
+                writer.exports("bench.library.pkg0", List.of());
+                out.putNextEntry(new JarEntry("module-info.class"));
+                out.write(writer.toByteArray());
+                out.closeEntry();
+            }
+            for (int i = 0; i < entries; i++) {
+                out.putNextEntry(new JarEntry("bench/library/pkg" + (i % 100) + "/Class" + i + ".class"));
+                out.write(new byte[64]);
+                out.closeEntry();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(jar.toPath());
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<ModuleIdentity> identity() {
+        return ModuleInspector.inspect(jar);
+    }
+
+    @Benchmark
+    public List<ModulePackages> packages() {
+        return ModuleInspector.inspectPackages(jar);
+    }
+}
@@ -0,0 +1,30 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.process.CommandLineArgumentProvider;
+
+import javax.inject.Inject;
+import java.util.List;
+
+public abstract class ArgumentFileProvider implements CommandLineArgumentProvider {
+    @Inject
+    public ArgumentFileProvider() {}
+
+    // absent when the task turns out not to need one
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getArgumentFile();
+
+    @Override
+    public Iterable<String> asArguments() {
+        if (!getArgumentFile().isPresent()) {
+            return List.of();
+        }
+        return List.of("@" + getArgumentFile().get().getAsFile().getAbsolutePath());
+    }
+}
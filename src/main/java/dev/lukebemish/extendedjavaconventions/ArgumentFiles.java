@@ -0,0 +1,41 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+final class ArgumentFiles {
+    private ArgumentFiles() {}
+
+    // a single command-line argument is capped at 128 KiB on Linux, which a long module path easily exceeds; java,
+    // javac and jlink all read arguments from @files with the same quoting rules instead
+    static String write(Path file, List<String> arguments) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (var argument : arguments) {
+                writer.write(quote(argument));
+                writer.write('\n');
+            }
+        }
+        return "@" + file.toAbsolutePath();
+    }
+
+    static String path(Iterable<File> files) {
+        var builder = new StringBuilder();
+        for (var file : files) {
+            if (!builder.isEmpty()) {
+                builder.append(File.pathSeparatorChar);
+            }
+            builder.append(file.getAbsolutePath());
+        }
+        return builder.toString();
+    }
+
+    // in argument files, backslashes within quotes are escape characters
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
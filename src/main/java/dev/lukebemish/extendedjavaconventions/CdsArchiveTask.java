@@ -0,0 +1,118 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLanguageVersion;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.CommandLineArgumentProvider;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public abstract class CdsArchiveTask extends DefaultTask {
+    // JDK 25 can write an AOT cache in a single training run; older JDKs write a dynamic AppCDS archive instead
+    private static final JavaLanguageVersion AOT_CACHE_VERSION = JavaLanguageVersion.of(25);
+
+    @Classpath
+    public abstract ConfigurableFileCollection getModulePath();
+
+    @Input
+    public abstract Property<String> getModule();
+
+    @Input
+    @Optional
+    public abstract Property<String> getMainClass();
+
+    @Input
+    public abstract ListProperty<String> getTrainingArgs();
+
+    @Input
+    public abstract ListProperty<String> getTrainingJvmArgs();
+
+    // archives are only valid for the exact JVM that wrote them
+    @Nested
+    public abstract Property<JavaLauncher> getJavaLauncher();
+
+    @OutputFile
+    public abstract RegularFileProperty getArchiveFile();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Inject
+    protected abstract ObjectFactory getObjectFactory();
+
+    @Inject
+    public CdsArchiveTask() {}
+
+    @Internal
+    public Provider<Boolean> getUsesAotCache() {
+        return getJavaLauncher().map(launcher -> launcher.getMetadata().getLanguageVersion().canCompileOrRun(AOT_CACHE_VERSION));
+    }
+
+    // arguments for a java process, using the same JVM and module path, to start from the archive
+    @Internal
+    public CommandLineArgumentProvider getArchiveArguments() {
+        var arguments = getObjectFactory().newInstance(ArchiveArguments.class);
+        arguments.getArchiveFile().set(getArchiveFile());
+        arguments.getAotCache().set(getUsesAotCache());
+        return arguments;
+    }
+
+    @TaskAction
+    public void run() throws IOException {
+        var archiveFile = getArchiveFile().get().getAsFile();
+        archiveFile.delete();
+        var module = getModule().get();
+
+        var args = new ArrayList<String>();
+        if (getUsesAotCache().get()) {
+            args.add("-XX:AOTCacheOutput=" + archiveFile.getAbsolutePath());
+        } else {
+            args.add("-XX:ArchiveClassesAtExit=" + archiveFile.getAbsolutePath());
+        }
+        args.addAll(getTrainingJvmArgs().get());
+        args.add(ArgumentFiles.write(getTemporaryDir().toPath().resolve("module-path.args"), List.of("--module-path", ArgumentFiles.path(getModulePath()))));
+        args.add("--module");
+        args.add(getMainClass().isPresent() ? module + "/" + getMainClass().get() : module);
+        args.addAll(getTrainingArgs().get());
+
+        getExecOperations().exec(spec -> {
+            spec.executable(getJavaLauncher().get().getExecutablePath().getAsFile());
+            spec.args(args);
+        });
+    }
+
+    public static abstract class ArchiveArguments implements CommandLineArgumentProvider {
+        @InputFile
+        @PathSensitive(PathSensitivity.NONE)
+        public abstract RegularFileProperty getArchiveFile();
+
+        @Input
+        public abstract Property<Boolean> getAotCache();
+
+        @Override
+        public Iterable<String> asArguments() {
+            var path = getArchiveFile().get().getAsFile().getAbsolutePath();
+            return List.of(getAotCache().get() ? "-XX:AOTCache=" + path : "-XX:SharedArchiveFile=" + path);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+final class ClassReferences {
+    // class types inside field, method and generic signature descriptors
+    private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([^;<>()\\[.]+)[;<]");
+
+    private ClassReferences() {}
+
+    // packages referenced anywhere in the constant pools of the given classes; this over-approximates, as strings shaped
+    // like descriptors count too, so that a requires is never dropped when it might be needed
+    static Set<String> referencedPackages(Iterable<File> classDirectories) {
+        var packages = new HashSet<String>();
+        for (var directory : classDirectories) {
+            var root = directory.toPath();
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(root)) {
+                for (var file : files.filter(f -> f.getFileName().toString().endsWith(".class")).toList()) {
+                    if (file.getFileName().toString().equals("module-info.class")) {
+                        continue;
+                    }
+                    try (var in = Files.newInputStream(file)) {
+                        for (var name : referencedClasses(in)) {
+                            var index = name.lastIndexOf('/');
+                            if (index != -1) {
+                                packages.add(name.substring(0, index).replace('/', '.'));
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read classes from " + directory, e);
+            }
+        }
+        return packages;
+    }
+
+    private static List<String> referencedClasses(InputStream stream) throws IOException {
+        var in = new DataInputStream(stream);
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        var count = in.readUnsignedShort();
+        var strings = new String[count];
+        var classes = new ArrayList<Integer>();
+        for (int i = 1; i < count; i++) {
+            var tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> strings[i] = in.readUTF();
+                case 7 -> classes.add(in.readUnsignedShort());
+                case 8, 16, 19, 20 -> in.readUnsignedShort();
+                case 15 -> in.skipBytes(3);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipBytes(4);
+                case 5, 6 -> {
+                    in.skipBytes(8);
+                    // eight byte constants take up two entries
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        var names = new ArrayList<String>();
+        for (var index : classes) {
+            var name = strings[index];
+            // array classes are named by their descriptor
+            if (!name.startsWith("[")) {
+                names.add(name);
+            }
+        }
+        for (var string : strings) {
+            if (string != null) {
+                var matcher = DESCRIPTOR_TYPE.matcher(string);
+                while (matcher.find()) {
+                    names.add(matcher.group(1));
+                }
+            }
+        }
+        return names;
+    }
+}
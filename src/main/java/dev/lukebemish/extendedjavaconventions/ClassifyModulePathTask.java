@@ -0,0 +1,161 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public abstract class ClassifyModulePathTask extends DefaultTask {
+    enum Classification {
+        EXPLICIT,
+        AUTOMATIC,
+        NON_MODULAR
+    }
+
+    // the output names every entry by its absolute path, so the paths are part of the input
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public abstract ConfigurableFileCollection getClasspath();
+
+    // artifacts resolved from the configuration behind the classpath, whose module identities have already been read,
+    // and the artifacts they came from
+    @Internal
+    public abstract ListProperty<File> getArtifacts();
+
+    @Internal
+    public abstract ListProperty<ComponentArtifactIdentifier> getArtifactIds();
+
+    // the module identity descriptors of those artifacts that could be inspected, which need not be all of them
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getIdentities();
+
+    @Internal
+    public abstract ListProperty<File> getIdentityFiles();
+
+    @Internal
+    public abstract ListProperty<ComponentArtifactIdentifier> getIdentityIds();
+
+    // modules to add to the root set when anything is on the module path
+    @Input
+    public abstract ListProperty<String> getAddModules();
+
+    // each classpath entry, in order, with its classification
+    @OutputFile
+    public abstract RegularFileProperty getClassificationFile();
+
+    // arguments putting the modular entries on the module path
+    @OutputFile
+    public abstract RegularFileProperty getArgumentFile();
+
+    @Inject
+    public ClassifyModulePathTask() {}
+
+    // the order of the entries decides which of several modules with the same name wins, which file fingerprints ignore
+    @Input
+    public List<String> getEntryOrder() {
+        return getClasspath().getFiles().stream().map(File::getAbsolutePath).toList();
+    }
+
+    static List<File> readModulePath(File file) {
+        try {
+            var modulePath = new ArrayList<File>();
+            for (var line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                var parts = line.split(" ", 2);
+                if (Classification.valueOf(parts[0]) != Classification.NON_MODULAR) {
+                    modulePath.add(new File(parts[1]));
+                }
+            }
+            return modulePath;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<ComponentIdentifier, List<File>> byComponent(List<ComponentArtifactIdentifier> ids, List<File> files) {
+        var components = new HashMap<ComponentIdentifier, List<File>>();
+        for (int i = 0; i < ids.size(); i++) {
+            components.computeIfAbsent(ids.get(i).getComponentIdentifier(), k -> new ArrayList<>()).add(files.get(i));
+        }
+        return components;
+    }
+
+    @TaskAction
+    public void run() throws IOException {
+        var artifacts = byComponent(getArtifactIds().get(), getArtifacts().get());
+        var identities = byComponent(getIdentityIds().get(), getIdentityFiles().get());
+        var known = new HashMap<File, List<ModuleIdentity>>();
+        for (var entry : artifacts.entrySet()) {
+            // a transform keeps the order of the artifacts of a component, but skips those it cannot read, after which
+            // the remaining ones can no longer be told apart and are read below like any other entry
+            var files = entry.getValue();
+            var descriptors = identities.getOrDefault(entry.getKey(), List.of());
+            if (files.size() != descriptors.size()) {
+                continue;
+            }
+            for (int i = 0; i < files.size(); i++) {
+                known.put(files.get(i).getAbsoluteFile(), ModuleIdentity.read(descriptors.get(i).toPath()));
+            }
+        }
+
+        var lines = new StringBuilder();
+        var modulePath = new ArrayList<File>();
+        for (var file : getClasspath()) {
+            var classification = Classification.NON_MODULAR;
+            if (file.exists()) {
+                var modules = known.get(file.getAbsoluteFile());
+                if (modules == null) {
+                    // entries that are not resolved artifacts, like the classes of other source sets, are read here
+                    modules = ModuleInspector.inspect(file);
+                }
+                if (modules.stream().anyMatch(m -> m.kind() == ModuleIdentity.Kind.EXPLICIT)) {
+                    classification = Classification.EXPLICIT;
+                } else if (!modules.isEmpty()) {
+                    classification = Classification.AUTOMATIC;
+                }
+            }
+            if (classification != Classification.NON_MODULAR) {
+                modulePath.add(file);
+            }
+            lines.append(classification.name()).append(' ').append(file.getAbsolutePath()).append('\n');
+        }
+
+        var classificationFile = getClassificationFile().get().getAsFile().toPath();
+        Files.createDirectories(classificationFile.getParent());
+        Files.writeString(classificationFile, lines.toString(), StandardCharsets.UTF_8);
+
+        var arguments = new ArrayList<String>();
+        if (!modulePath.isEmpty()) {
+            arguments.add("--module-path");
+            arguments.add(ArgumentFiles.path(modulePath));
+            if (!getAddModules().get().isEmpty()) {
+                arguments.add("--add-modules");
+                arguments.add(String.join(",", getAddModules().get()));
+            }
+        }
+        ArgumentFiles.write(getArgumentFile().get().getAsFile().toPath(), arguments);
+    }
+}
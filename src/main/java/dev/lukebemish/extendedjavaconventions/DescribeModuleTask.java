@@ -0,0 +1,58 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+// the contents of a generated module, read from its descriptor and sources rather than its classes, so that consumers
+// checking their module graph never wait on its compilation
+@CacheableTask
+public abstract class DescribeModuleTask extends DefaultTask {
+    // the generated module-info.java or module-info.class
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getModuleInfo();
+
+    // the sources of the module, whose directories are its packages
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getSources();
+
+    // how consumers refer to the module in their reports
+    @Input
+    public abstract Property<String> getArtifactName();
+
+    @OutputFile
+    public abstract RegularFileProperty getDescriptorFile();
+
+    @Inject
+    public DescribeModuleTask() {}
+
+    @TaskAction
+    public void run() throws IOException {
+        var root = ValidateModuleGraphTask.readRoot(getModuleInfo());
+        var requires = root.requires().entrySet().stream()
+            .filter(e -> !e.getValue())
+            .map(Map.Entry::getKey)
+            .sorted()
+            .toList();
+        var module = new ModulePackages(new ModuleIdentity(root.name(), ModuleIdentity.Kind.EXPLICIT), getArtifactName().get(), false, requires, ValidateModuleGraphTask.sourcePackages(getSources()));
+        var descriptorFile = getDescriptorFile().get().getAsFile().toPath();
+        Files.createDirectories(descriptorFile.getParent());
+        ModulePackages.write(descriptorFile, List.of(module));
+    }
+}
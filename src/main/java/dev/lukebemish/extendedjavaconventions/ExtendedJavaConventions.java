@@ -1,22 +1,67 @@
 package dev.lukebemish.extendedjavaconventions;
 
 import org.gradle.api.Action;
+import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.ArtifactCollection;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.PublishArtifact;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
 import org.gradle.api.attributes.Attribute;
-import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.LibraryElements;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.ClasspathNormalizer;
+import org.gradle.api.tasks.CompileClasspathNormalizer;
+import org.gradle.api.tasks.JavaExec;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskDependency;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.api.tasks.javadoc.Javadoc;
+import org.gradle.api.tasks.testing.Test;
+import org.gradle.jvm.tasks.Jar;
 import org.gradle.jvm.toolchain.JavaToolchainService;
-import org.gradle.jvm.toolchain.JvmVendorSpec;
+import org.jetbrains.annotations.Nullable;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public abstract class ExtendedJavaConventions {
+    private static final String SOURCE_DIRECTORIES = "source-directories";
+    private static final String MODULE_CLASSES = "module-classes";
+    private static final String MODULE_PACKAGES = "module-packages";
+
+    private boolean moduleIdentityTransformsRegistered = false;
+    private boolean sourceDirectoriesCompatibilityRegistered = false;
+    private final Map<String, Provider<Directory>> generatedModuleInfoDirectories = new HashMap<>();
+    private final Map<String, Property<Boolean>> compilesModule = new HashMap<>();
+    private boolean testModulePathsRegistered = false;
+    private final Map<String, TestedModule> testedModules = new HashMap<>();
+    private final Map<String, FeatureUtils.Context> featureContexts = new HashMap<>();
+    private final Map<String, Provider<TestedModule>> testedModuleProviders = new HashMap<>();
+    private final Map<String, String> trimmedTasks = new HashMap<>();
+    private final Map<String, TaskProvider<TrimModulePathTask>> trimmedTests = new HashMap<>();
+
     @Inject
     public ExtendedJavaConventions() {
         getSourceSets().configureEach(s -> {
@@ -28,15 +73,19 @@ public ExtendedJavaConventions() {
     protected abstract Project getProject();
 
     @Inject
-    protected abstract JavaToolchainService getJavaToolchainService();
+    protected abstract ObjectFactory getObjectFactory();
 
     @Inject
-    protected abstract ObjectFactory getObjectFactory();
+    protected abstract JavaToolchainService getJavaToolchainService();
 
     private SourceSetContainer getSourceSets() {
         return getProject().getExtensions().findByType(SourceSetContainer.class);
     }
 
+    private JavaPluginExtension getJava() {
+        return getProject().getExtensions().getByType(JavaPluginExtension.class);
+    }
+
     private ConfigurationContainer getConfigurations() {
         return getProject().getConfigurations();
     }
@@ -61,57 +110,564 @@ public void local(SourceSet sourceSet) {
         });
     }
 
-    private void copyAttributes(Configuration source, Configuration target) {
-        for (Attribute<?> attribute : source.getAttributes().keySet()) {
-            copyAttribute(attribute, source.getAttributes(), target.getAttributes());
+    public void sourcepath() {
+        getSourceSets().configureEach(this::sourcepath);
+    }
+
+    public void sourcepath(SourceSet sourceSet) {
+        registerSourceDirectoriesCompatibility();
+        var sourceDirectories = getObjectFactory().named(LibraryElements.class, SOURCE_DIRECTORIES);
+        var moduleClasses = getObjectFactory().named(LibraryElements.class, MODULE_CLASSES);
+        var modular = compilesModule(sourceSet);
+
+        // apiElements of feature source sets may only be registered later, so it is matched by name as it is added
+        getConfigurations().named(sourceSet.getApiElementsConfigurationName()::equals).configureEach(configuration -> {
+            configuration.getOutgoing().getVariants().create("sourceDirectories", variant -> {
+                variant.getAttributes().attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, sourceDirectories);
+                variant.getArtifacts().addAllLater(getProject().provider(() -> sourceDirectoryArtifacts(sourceSet)));
+            });
+        });
+        var compileClasspath = getConfigurations().named(sourceSet.getCompileClasspathConfigurationName());
+        compileClasspath.configure(configuration -> {
+            // javac only compiles a single module from sources, so source sets that are modules keep compiling against
+            // the classes of other modules
+            configuration.getAttributes().attributeProvider(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, modular.map(m -> m ? moduleClasses : sourceDirectories));
+        });
+
+        getTasks().named(sourceSet.getCompileJavaTaskName(), JavaCompile.class, task -> {
+            var none = getProject().files();
+            // the api dependencies of the projects compiled from sources come with their source directories, like those of
+            // any other api variant, so nothing else needs to be added to the classpath
+            var projectSources = getProject().files(compileClasspath.map(ExtendedJavaConventions::projectArtifacts));
+            task.getOptions().setSourcepath(getProject().files(modular.map(m -> m ? none : projectSources)));
+            // classes compiled from other projects' sources belong to those projects
+            task.getOptions().getCompilerArgs().add("-implicit:none");
+        });
+    }
+
+    private Property<Boolean> compilesModule(SourceSet sourceSet) {
+        return compilesModule.computeIfAbsent(sourceSet.getName(), name -> getObjectFactory().property(Boolean.class).convention(false));
+    }
+
+    private void registerSourceDirectoriesCompatibility() {
+        if (sourceDirectoriesCompatibilityRegistered) {
+            return;
         }
+        sourceDirectoriesCompatibilityRegistered = true;
+        getProject().getDependencies().getAttributesSchema().attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, attribute -> {
+            attribute.getCompatibilityRules().add(SourceDirectoriesCompatibilityRule.class);
+        });
     }
 
-    private <T> void copyAttribute(Attribute<T> attribute, AttributeContainer source, AttributeContainer target) {
-        var value = source.getAttribute(attribute);
-        if (value != null) {
-            target.attribute(attribute, value);
+    private List<PublishArtifact> sourceDirectoryArtifacts(SourceSet sourceSet) {
+        if (hasPrivateDependencies(sourceSet)) {
+            // javac attributes the sources it reads, which needs the dependencies they use; those that are not api
+            // stay off consumers' classpaths, so consumers compile against the classes instead
+            var classesDirectory = sourceSet.getJava().getDestinationDirectory();
+            var classes = getProject().files(classesDirectory).builtBy(sourceSet.getCompileJavaTaskName());
+            return List.of(getObjectFactory().newInstance(LazyDirectoryArtifact.class, sourceSet.getName() + "-classes", ArtifactTypeDefinition.JVM_CLASS_DIRECTORY, classesDirectory.map(Directory::getAsFile), classes.getBuildDependencies()));
+        }
+        var generated = generatedModuleInfoDirectories.get(sourceSet.getName());
+        var generatedDirectory = generated == null ? null : generated.get().getAsFile();
+        // source directories are used as they are, so consumers never wait on tasks of this project
+        var taskDependency = getProject().files().getBuildDependencies();
+        var artifacts = new ArrayList<PublishArtifact>();
+        for (var directory : sourceSet.getJava().getSrcDirs()) {
+            // a module-info.java on the source path would turn the consumer into that module
+            if (directory.equals(generatedDirectory)) {
+                continue;
+            }
+            artifacts.add(getObjectFactory().newInstance(LazyDirectoryArtifact.class, directory.getName(), SOURCE_DIRECTORIES, getProject().provider(() -> directory), taskDependency));
         }
+        return artifacts;
+    }
+
+    private boolean hasPrivateDependencies(SourceSet sourceSet) {
+        var api = getConfigurations().getByName(sourceSet.getApiElementsConfigurationName()).getAllDependencies();
+        return getConfigurations().getByName(sourceSet.getCompileClasspathConfigurationName()).getAllDependencies().stream()
+            .anyMatch(dependency -> !api.contains(dependency));
+    }
+
+    // the source directories of projects compiled from sources, leaving out those that offer their classes instead
+    private static FileCollection projectArtifacts(Configuration configuration) {
+        return configuration.getIncoming().artifactView(view -> {
+            view.getAttributes().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, SOURCE_DIRECTORIES);
+            view.componentFilter(id -> id instanceof ProjectComponentIdentifier);
+        }).getFiles();
+    }
+
+    private void copyAttributes(NamedDomainObjectProvider<Configuration> source, Configuration target) {
+        for (Attribute<?> attribute : source.get().getAttributes().keySet()) {
+            copyAttribute(attribute, source, target);
+        }
+    }
+
+    private <T> void copyAttribute(Attribute<T> attribute, NamedDomainObjectProvider<Configuration> source, Configuration target) {
+        // values are only read when the target is resolved, so values configured later on the source are still picked up
+        target.getAttributes().attributeProvider(attribute, source.map(c -> c.getAttributes().getAttribute(attribute)));
+    }
+
+    private @Nullable Provider<ModuleInfoMetricsService> metricsService() {
+        var enabled = getProject().getProviders().gradleProperty(ExtendedJavaConventionsProperties.METRICS).map(Boolean::valueOf).orElse(false).get();
+        if (!enabled) {
+            return null;
+        }
+        var reportFile = getProject().getIsolated().getRootProject().getProjectDirectory().file("build/reports/generateModuleInfo/aggregate.json");
+        return getProject().getGradle().getSharedServices().registerIfAbsent("generateModuleInfoMetrics", ModuleInfoMetricsService.class, spec -> {
+            spec.getParameters().getReportFile().set(reportFile);
+        });
+    }
+
+    // a file of the user's, relative to the root project, that extends the bundled index and learns from inspections
+    private @Nullable RegularFile moduleIndexFile() {
+        var path = getProject().getProviders().gradleProperty(ExtendedJavaConventionsProperties.MODULE_INDEX).getOrNull();
+        if (path == null) {
+            return null;
+        }
+        return getProject().getIsolated().getRootProject().getProjectDirectory().file(path);
+    }
+
+    private Provider<ModuleIndex> moduleIndex() {
+        // the bundled index can be turned off, for builds whose repositories serve different artifacts under the same
+        // coordinates
+        var useBundled = getProject().getProviders().gradleProperty(ExtendedJavaConventionsProperties.BUNDLED_MODULE_INDEX).map(Boolean::valueOf).orElse(true).get();
+        var bundled = getProject().getProviders().provider(() -> useBundled ? ModuleIndex.bundled() : ModuleIndex.empty());
+        var file = moduleIndexFile();
+        if (file == null) {
+            return bundled;
+        }
+        // read as a build input, so that a changed index invalidates the configuration cache
+        return getProject().getProviders().fileContents(file).getAsText()
+            .zip(bundled, (text, base) -> base.with(ModuleIndex.parse(text, "module index " + file.getAsFile())))
+            .orElse(bundled);
+    }
+
+    private @Nullable Provider<ModuleIndexService> moduleIndexService() {
+        var file = moduleIndexFile();
+        if (file == null) {
+            return null;
+        }
+        return getProject().getGradle().getSharedServices().registerIfAbsent("moduleIndex", ModuleIndexService.class, spec -> {
+            spec.getParameters().getIndexFile().set(file);
+        });
+    }
+
+    private void registerModuleIdentityTransforms() {
+        if (moduleIdentityTransformsRegistered) {
+            return;
+        }
+        moduleIdentityTransformsRegistered = true;
+        getProject().getDependencies().getAttributesSchema().attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, attribute -> {
+            attribute.getCompatibilityRules().add(ModuleClassesCompatibilityRule.class);
+        });
+        for (var type : List.of(ArtifactTypeDefinition.JAR_TYPE, ArtifactTypeDefinition.JVM_CLASS_DIRECTORY, ArtifactTypeDefinition.JVM_RESOURCES_DIRECTORY)) {
+            getProject().getDependencies().registerTransform(ModuleIdentityTransform.class, spec -> {
+                spec.getFrom().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, type);
+                spec.getTo().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ModuleIdentity.ARTIFACT_TYPE);
+            });
+            getProject().getDependencies().registerTransform(ModulePackagesTransform.class, spec -> {
+                spec.getFrom().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, type);
+                spec.getTo().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ModulePackages.ARTIFACT_TYPE);
+            });
+        }
+    }
+
+    private static FileCollection moduleArtifacts(Configuration configuration, String artifactType) {
+        return configuration.getIncoming().artifactView(view -> {
+            view.getAttributes().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, artifactType);
+        }).getFiles();
+    }
+
+    private static FileCollection moduleArtifacts(Configuration configuration, String artifactType, Provider<ModuleScopes> scopes, ModuleScopes.Scope scope) {
+        // tagging the graph resolves it, which is only done here, once the artifacts are actually needed
+        var graph = scopes.get();
+        return configuration.getIncoming().artifactView(view -> {
+            view.getAttributes().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, artifactType);
+            view.componentFilter(id -> graph.inspects(id, scope));
+        }).getFiles();
+    }
+
+    // module identities of the components that are neither published with a name nor in the index
+    private static ArtifactCollection unindexedArtifacts(Configuration configuration, Provider<ModuleScopes> scopes) {
+        var graph = scopes.get();
+        return configuration.getIncoming().artifactView(view -> {
+            view.getAttributes().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ModuleIdentity.ARTIFACT_TYPE);
+            view.componentFilter(graph::inspects);
+        }).getArtifacts();
+    }
+
+    // the contents of every module of a classpath; producers in the build that generate their module descriptor
+    // publish them directly, and anything else is read from its jar
+    private FileCollection modulePackagesArtifacts(Configuration configuration) {
+        return configuration.getIncoming().artifactView(view -> {
+            view.getAttributes().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ModulePackages.ARTIFACT_TYPE);
+            view.getAttributes().attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, getObjectFactory().named(LibraryElements.class, MODULE_PACKAGES));
+        }).getFiles();
+    }
+
+    private void directoryVariant(Configuration configuration, String name, String libraryElements, String artifactType, Provider<File> directory, TaskDependency taskDependency) {
+        var variants = configuration.getOutgoing().getVariants();
+        if (variants.getNames().contains(name)) {
+            // the java plugin already provides this variant for source sets it manages
+            return;
+        }
+        variants.create(name, variant -> {
+            variant.getAttributes().attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, getObjectFactory().named(LibraryElements.class, libraryElements));
+            variant.artifact(getObjectFactory().newInstance(LazyDirectoryArtifact.class, configuration.getName() + "-" + name, artifactType, directory, taskDependency));
+        });
+    }
+
+    private void directoryVariants(SourceSet sourceSet) {
+        // the configured location rather than the task output, which may not be queried while resolving consumers
+        var classesDirectory = sourceSet.getJava().getDestinationDirectory();
+        var classes = getProject().files(classesDirectory).builtBy(sourceSet.getCompileJavaTaskName());
+        var resources = getProject().files(getProject().provider(() -> sourceSet.getOutput().getResourcesDir()))
+            .builtBy(sourceSet.getProcessResourcesTaskName());
+        getConfigurations().named(sourceSet.getApiElementsConfigurationName(), c -> {
+            directoryVariant(c, "classes", LibraryElements.CLASSES, ArtifactTypeDefinition.JVM_CLASS_DIRECTORY, classesDirectory.map(Directory::getAsFile), classes.getBuildDependencies());
+            directoryVariant(c, "moduleClasses", MODULE_CLASSES, ArtifactTypeDefinition.JVM_CLASS_DIRECTORY, classesDirectory.map(Directory::getAsFile), classes.getBuildDependencies());
+        });
+        getConfigurations().named(sourceSet.getRuntimeElementsConfigurationName(), c -> {
+            directoryVariant(c, "classes", LibraryElements.CLASSES, ArtifactTypeDefinition.JVM_CLASS_DIRECTORY, classesDirectory.map(Directory::getAsFile), classes.getBuildDependencies());
+            directoryVariant(c, "resources", LibraryElements.RESOURCES, ArtifactTypeDefinition.JVM_RESOURCES_DIRECTORY, getProject().provider(() -> sourceSet.getOutput().getResourcesDir()), resources.getBuildDependencies());
+            directoryVariant(c, "moduleClasses", MODULE_CLASSES, ArtifactTypeDefinition.JVM_CLASS_DIRECTORY, classesDirectory.map(Directory::getAsFile), classes.getBuildDependencies());
+        });
+    }
+
+    private void jarOnlyVariants(SourceSet sourceSet) {
+        // a class directory lacks the separately written module-info.class, so consumers must fall back to the jar
+        for (var name : List.of(sourceSet.getApiElementsConfigurationName(), sourceSet.getRuntimeElementsConfigurationName())) {
+            getConfigurations().named(name, c -> {
+                c.getOutgoing().getVariants().removeIf(variant -> variant.getName().equals("classes"));
+            });
+        }
+    }
+
+    // one context per source set, so that every call shares the hook waiting for configurations registered later
+    public void feature(SourceSet sourceSet, Action<? super FeatureUtils.Context> action) {
+        action.execute(featureContexts.computeIfAbsent(sourceSet.getName(), name -> getObjectFactory().newInstance(FeatureUtils.Context.class, sourceSet)));
+    }
+
+    public void trimModulePath(SourceSet sourceSet, Task task) {
+        var trimmedBy = trimmedTasks.putIfAbsent(task.getName(), sourceSet.getName());
+        if (trimmedBy != null) {
+            if (!trimmedBy.equals(sourceSet.getName())) {
+                throw new IllegalArgumentException("The module path of " + task.getName() + " is already trimmed to that of source set " + trimmedBy);
+            }
+            return;
+        }
+        var trimTask = getTasks().named(sourceSet.getTaskName("trim", "modulePath"), TrimModulePathTask.class);
+        if (task instanceof JavaExec javaExec) {
+            // the module path comes from the argument file alone
+            javaExec.setClasspath(getProject().files());
+            javaExec.getModularity().getInferModulePath().set(false);
+            javaExec.getMainModule().convention(trimTask.flatMap(t -> t.getRootModules().map(modules -> modules.get(0))));
+            var arguments = getObjectFactory().newInstance(ArgumentFileProvider.class);
+            arguments.getArgumentFile().set(trimTask.flatMap(TrimModulePathTask::getArgumentFile));
+            javaExec.getJvmArgumentProviders().add(arguments);
+        } else if (task instanceof Test test) {
+            // test frameworks need their own setup of the module path, so unreachable modules are only removed from the
+            // classpath; what is reachable is computed from the test's own classpath, where everything the tests add
+            // beyond the module path of the code under test is a root
+            var classpath = test.getClasspath();
+            // a test given the module path of the module it tests keeps that module path apart from its classpath
+            var tested = testedModules(test);
+            var testModulePath = getProject().files(tested.map(TestedModule::modulePath).orElse(getProject().files()));
+            var testTrimTaskName = sourceSet.getTaskName("trim", test.getName() + "ModulePath");
+            var testTrimTask = getTasks().register(testTrimTaskName, TrimModulePathTask.class, t -> {
+                t.getModulePath().from(classpath, testModulePath);
+                t.getTestModulePath().from(testModulePath);
+                t.getRootModules().set(trimTask.flatMap(TrimModulePathTask::getRootModules));
+                t.getRootModulePath().from(classpath.minus(getProject().files(trimTask.map(TrimModulePathTask::getModulePath))));
+                t.getArgumentFile().set(getProject().getLayout().getBuildDirectory().file("tmp/" + testTrimTaskName + "/jvm.args"));
+                t.getUnreachableFile().set(getProject().getLayout().getBuildDirectory().file("tmp/" + testTrimTaskName + "/unreachable.txt"));
+            });
+            trimmedTests.put(test.getName(), testTrimTask);
+            var unreachable = getProject().files(testTrimTask.flatMap(TrimModulePathTask::getUnreachableFile).map(f -> TrimModulePathTask.readUnreachable(f.getAsFile())));
+            test.setClasspath(classpath.minus(unreachable));
+        } else {
+            throw new IllegalArgumentException("Unsupported task type: " + task.getClass().getName());
+        }
+    }
+
+    private static List<File> artifactFiles(Collection<ResolvedArtifactResult> artifacts) {
+        return artifacts.stream().map(ResolvedArtifactResult::getFile).toList();
+    }
+
+    private static List<ComponentArtifactIdentifier> artifactIds(Collection<ResolvedArtifactResult> artifacts) {
+        return artifacts.stream().map(ResolvedArtifactResult::getId).toList();
+    }
+
+    private TaskProvider<ClassifyModulePathTask> registerClassifyTask(SourceSet sourceSet, String scope, FileCollection classpath, NamedDomainObjectProvider<Configuration> configuration, List<String> addModules) {
+        var taskName = sourceSet.getTaskName("classify", scope + "ModulePath");
+        return getTasks().register(taskName, ClassifyModulePathTask.class, task -> {
+            task.getClasspath().from(classpath);
+            // resolved artifacts themselves cannot be stored in the configuration cache
+            var artifacts = configuration.flatMap(c -> c.getIncoming().getArtifacts().getResolvedArtifacts());
+            task.getArtifacts().set(artifacts.map(ExtendedJavaConventions::artifactFiles));
+            task.getArtifactIds().set(artifacts.map(ExtendedJavaConventions::artifactIds));
+            var identities = configuration.map(c -> c.getIncoming().artifactView(view -> {
+                view.getAttributes().attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ModuleIdentity.ARTIFACT_TYPE);
+            }).getArtifacts());
+            task.getIdentities().from(identities.map(ArtifactCollection::getArtifactFiles));
+            task.getIdentityFiles().set(identities.flatMap(ArtifactCollection::getResolvedArtifacts).map(ExtendedJavaConventions::artifactFiles));
+            task.getIdentityIds().set(identities.flatMap(ArtifactCollection::getResolvedArtifacts).map(ExtendedJavaConventions::artifactIds));
+            task.getAddModules().set(addModules);
+            task.getClassificationFile().set(getProject().getLayout().getBuildDirectory().file("tmp/" + taskName + "/classification.txt"));
+            task.getArgumentFile().set(getProject().getLayout().getBuildDirectory().file("tmp/" + taskName + "/module-path.args"));
+        });
+    }
+
+    private void classifiedModulePath(SourceSet sourceSet, NamedDomainObjectProvider<Configuration> compileClasspath, NamedDomainObjectProvider<Configuration> runtimeClasspath) {
+        // Gradle would otherwise open every entry of these classpaths again to find the module path, while the module
+        // identity transforms have already read them
+        var compileTask = registerClassifyTask(sourceSet, "compile", sourceSet.getCompileClasspath(), compileClasspath, List.of());
+        // the test worker adds the module path to the root modules the same way
+        var runtimeTask = registerClassifyTask(sourceSet, "runtime", sourceSet.getRuntimeClasspath(), runtimeClasspath, List.of("ALL-MODULE-PATH"));
+        var compileModulePath = getProject().files(compileTask.flatMap(ClassifyModulePathTask::getClassificationFile).map(f -> ClassifyModulePathTask.readModulePath(f.getAsFile())));
+        var runtimeModulePath = getProject().files(runtimeTask.flatMap(ClassifyModulePathTask::getClassificationFile).map(f -> ClassifyModulePathTask.readModulePath(f.getAsFile())));
+
+        getTasks().named(sourceSet.getCompileJavaTaskName(), JavaCompile.class, task -> {
+            task.getModularity().getInferModulePath().set(false);
+            task.setClasspath(task.getClasspath().minus(compileModulePath));
+            var arguments = getObjectFactory().newInstance(ModulePathArgumentProvider.class);
+            arguments.getModulePath().from(compileModulePath);
+            task.getOptions().getCompilerArgumentProviders().add(arguments);
+        });
+        var javadocTaskName = sourceSet.getJavadocTaskName();
+        getTasks().withType(Javadoc.class).configureEach(task -> {
+            if (!task.getName().equals(javadocTaskName)) {
+                return;
+            }
+            task.getModularity().getInferModulePath().set(false);
+            task.setClasspath(task.getClasspath().minus(compileModulePath));
+            // the argument file only holds paths, so the contents of the modules are tracked separately
+            task.getInputs().files(compileModulePath).withPropertyName("modulePath").withNormalizer(CompileClasspathNormalizer.class);
+            var argumentFile = compileTask.flatMap(ClassifyModulePathTask::getArgumentFile);
+            task.getInputs().file(argumentFile).withPropertyName("modulePathArguments").withPathSensitivity(PathSensitivity.NONE);
+            var optionFile = getObjectFactory().newInstance(JavadocOptionFileAction.class);
+            optionFile.getOptionFile().set(argumentFile);
+            task.doFirst(optionFile);
+        });
+        testedModules.put(sourceSet.getName(), new TestedModule(sourceSet.getOutput().getClassesDirs(), runtimeModulePath, runtimeTask.flatMap(ClassifyModulePathTask::getArgumentFile)));
+        registerTestModulePaths();
+    }
+
+    private record TestedModule(FileCollection classesDirs, FileCollection modulePath, Provider<RegularFile> argumentFile) {}
+
+    // a test task runs on the module path of the generated module it tests: the one whose classes it runs, or else the
+    // only one on its classpath, as main is for the default test suite
+    private void registerTestModulePaths() {
+        if (testModulePathsRegistered) {
+            return;
+        }
+        testModulePathsRegistered = true;
+        getTasks().withType(Test.class).configureEach(task -> {
+            var classpath = task.getClasspath();
+            // telling which module is on the classpath resolves it, so this is only decided once the task runs
+            var tested = getProject().provider(() -> testedModule(task.getTestClassesDirs(), classpath));
+            testedModuleProviders.put(task.getName(), tested);
+            var modulePath = getProject().files(tested.map(TestedModule::modulePath).orElse(getProject().files()));
+            task.getModularity().getInferModulePath().set(tested.map(t -> false).orElse(getJava().getModularity().getInferModulePath()));
+            task.setClasspath(classpath.minus(modulePath));
+            task.getInputs().files(modulePath).withPropertyName("modulePath").withNormalizer(ClasspathNormalizer.class);
+            var arguments = getObjectFactory().newInstance(ArgumentFileProvider.class);
+            // once trimmed, the test takes the trimmed module path instead
+            arguments.getArgumentFile().set(tested.flatMap(t -> {
+                var trimmed = trimmedTests.get(task.getName());
+                return trimmed == null ? t.argumentFile() : trimmed.flatMap(TrimModulePathTask::getArgumentFile);
+            }));
+            task.getJvmArgumentProviders().add(arguments);
+        });
+    }
+
+    private Provider<TestedModule> testedModules(Test task) {
+        var tested = testedModuleProviders.get(task.getName());
+        return tested == null ? getProject().provider(() -> null) : tested;
+    }
+
+    private @Nullable TestedModule testedModule(@Nullable FileCollection testClassesDirs, FileCollection classpath) {
+        if (testClassesDirs != null) {
+            var testClasses = testClassesDirs.getFiles();
+            for (var module : testedModules.values()) {
+                if (module.classesDirs().getFiles().stream().anyMatch(testClasses::contains)) {
+                    return module;
+                }
+            }
+        }
+        var entries = classpath.getFiles();
+        var onClasspath = testedModules.values().stream()
+            .filter(m -> m.classesDirs().getFiles().stream().anyMatch(entries::contains))
+            .toList();
+        // with several, it is not clear which module is tested, so Gradle is left to infer the module path
+        return onClasspath.size() == 1 ? onClasspath.get(0) : null;
     }
 
     public void generateModuleInfo(SourceSet sourceSet, Action<ModuleInfoSpec> action) {
         var spec = getObjectFactory().newInstance(ModuleInfoSpec.class);
         action.execute(spec);
+        registerModuleIdentityTransforms();
+        var bytecode = spec.getBytecode().get();
+        var pruneRequires = spec.getPruneRequires().get();
+        if (pruneRequires && !bytecode) {
+            // a generated module-info.java is compiled along with the classes that would be scanned
+            throw new IllegalArgumentException("Pruning requires of " + spec.getName().get() + " needs bytecode to be enabled");
+        }
+        if (bytecode) {
+            jarOnlyVariants(sourceSet);
+        } else {
+            directoryVariants(sourceSet);
+        }
 
         var runtimeClasspath = getConfigurations().named(sourceSet.getRuntimeClasspathConfigurationName());
         var compileClasspath = getConfigurations().named(sourceSet.getCompileClasspathConfigurationName());
 
         var apiElements = getConfigurations().named(sourceSet.getApiElementsConfigurationName());
         var runtimeElements = getConfigurations().named(sourceSet.getRuntimeElementsConfigurationName());
+        for (var elements : List.of(apiElements, runtimeElements)) {
+            // published in the variant metadata, so that consumers need not inspect the artifacts
+            elements.configure(c -> {
+                c.getAttributes().attributeProvider(ExtendedJavaConventionsAttributes.MODULE_NAME, spec.getName());
+                c.getAttributes().attributeProvider(ExtendedJavaConventionsAttributes.MODULE_OPEN, spec.getOpen());
+            });
+        }
 
-        var requireStaticModules = getConfigurations().resolvable(sourceSet.getTaskName(null, "requireStaticModules"), c -> {
-            c.setTransitive(spec.getIncludeTransitive().get());
-            copyAttributes(compileClasspath.get(), c);
-            c.extendsFrom(compileClasspath.get());
-        });
-        var requireRuntimeModules = getConfigurations().resolvable(sourceSet.getTaskName(null, "requireRuntimeModules"), c -> {
+        // a single graph holds the dependencies of every scope, so that overlapping graphs are only resolved once
+        var moduleDependencies = getConfigurations().resolvable(sourceSet.getTaskName(null, "moduleDependencies"), c -> {
             c.setTransitive(spec.getIncludeTransitive().get());
-            copyAttributes(runtimeClasspath.get(), c);
-            c.extendsFrom(runtimeElements.get());
+            copyAttributes(runtimeClasspath, c);
+            // module identities can be read from the class directories of same-build producers that compile a module
+            // descriptor, so those need not package jars; any other producer falls back to its jar
+            c.getAttributes().attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, getObjectFactory().named(LibraryElements.class, MODULE_CLASSES));
+            c.extendsFrom(compileClasspath.get(), runtimeElements.get());
         });
-        var transitiveModules = getConfigurations().resolvable(sourceSet.getTaskName(null, "transitiveModules"), c -> {
-            c.setTransitive(spec.getIncludeTransitive().get());
-            copyAttributes(compileClasspath.get(), c);
-            c.extendsFrom(apiElements.get());
-        });
-
-        var generateTask = getTasks().register(sourceSet.getTaskName("generate", "moduleInfo"), GenerateModuleInfoTask.class, task -> {
-            task.getRequireRuntime().from(requireRuntimeModules);
-            task.getRequireStatic().from(requireStaticModules);
-            task.getRequireTransitive().from(transitiveModules);
-            task.getOutputDirectory().set(getProject().getLayout().getBuildDirectory().dir("generated/generatedModuleInfo/" + sourceSet.getName()));
-            var compiler = getTasks().named(sourceSet.getCompileJavaTaskName(), JavaCompile.class).flatMap(JavaCompile::getJavaCompiler);
-            task.getJavaLauncher().set(getJavaToolchainService().launcherFor(toolchain -> {
-                toolchain.getLanguageVersion().set(compiler.map(c -> c.getMetadata().getLanguageVersion()));
-                toolchain.getVendor().set(compiler.map(c -> JvmVendorSpec.matching(c.getMetadata().getVendor())));
-            }));
+        var apiDependencies = apiElements.map(c -> ModuleScopes.keys(c.getAllDependencies()));
+        var compileDependencies = compileClasspath.map(c -> ModuleScopes.keys(c.getAllDependencies()));
+        var runtimeDependencies = runtimeElements.map(c -> ModuleScopes.keys(c.getAllDependencies()));
+        var moduleIndex = moduleIndex();
+        var scopes = moduleDependencies.flatMap(c -> c.getIncoming().getResolutionResult().getRootComponent()).map(root -> ModuleScopes.of(root, Map.of(
+            ModuleScopes.Scope.API, apiDependencies.get(),
+            ModuleScopes.Scope.COMPILE, compileDependencies.get(),
+            ModuleScopes.Scope.RUNTIME, runtimeDependencies.get()
+        ), moduleIndex.get()));
+
+        var outputDirectory = getProject().getLayout().getBuildDirectory().dir("generated/generatedModuleInfo/" + sourceSet.getName());
+        generatedModuleInfoDirectories.put(sourceSet.getName(), outputDirectory);
+        // with bytecode, the sources themselves are compiled without a module descriptor
+        compilesModule(sourceSet).set(!bytecode);
+        if (!bytecode) {
+            // the module path is made of the same artifacts the module identities were read from; a class directory
+            // without a descriptor would not be a module at all, where the jar it is packaged in is an automatic one
+            compileClasspath.configure(c -> {
+                c.getAttributes().attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, getObjectFactory().named(LibraryElements.class, MODULE_CLASSES));
+            });
+        }
+        var metricsService = metricsService();
+        var generateTaskName = sourceSet.getTaskName("generate", "moduleInfo");
+        var generateTask = getTasks().register(generateTaskName, GenerateModuleInfoTask.class, task -> {
+            task.getRequireRuntime().from(moduleDependencies.map(c -> moduleArtifacts(c, ModuleIdentity.ARTIFACT_TYPE, scopes, ModuleScopes.Scope.RUNTIME)));
+            task.getRequireStatic().from(moduleDependencies.map(c -> moduleArtifacts(c, ModuleIdentity.ARTIFACT_TYPE, scopes, ModuleScopes.Scope.COMPILE)));
+            task.getRequireTransitive().from(moduleDependencies.map(c -> moduleArtifacts(c, ModuleIdentity.ARTIFACT_TYPE, scopes, ModuleScopes.Scope.API)));
+            task.getPublishedRuntime().set(scopes.map(g -> g.publishedModules(ModuleScopes.Scope.RUNTIME)));
+            task.getPublishedStatic().set(scopes.map(g -> g.publishedModules(ModuleScopes.Scope.COMPILE)));
+            task.getPublishedTransitive().set(scopes.map(g -> g.publishedModules(ModuleScopes.Scope.API)));
+            task.getOutputDirectory().set(outputDirectory);
             task.getModuleInfoSpec().set(spec);
+            if (bytecode) {
+                // not the whole output, which holds the generated descriptor itself
+                task.getClasses().from(sourceSet.getOutput().getClassesDirs());
+                task.getClasses().from(getProject().files(getProject().provider(() -> sourceSet.getOutput().getResourcesDir())).builtBy(sourceSet.getProcessResourcesTaskName()));
+            }
+            if (pruneRequires) {
+                task.getModulePackages().from(moduleDependencies.map(c -> moduleArtifacts(c, ModulePackages.ARTIFACT_TYPE)));
+                task.getPruneReport().set(getProject().getLayout().getBuildDirectory().file("reports/generateModuleInfo/" + sourceSet.getName() + "-requires.txt"));
+            }
+            task.getMetricsFile().set(getProject().getLayout().getBuildDirectory().file("reports/generateModuleInfo/" + sourceSet.getName() + ".json"));
+            if (metricsService != null) {
+                task.getMetricsService().set(metricsService);
+                task.usesService(metricsService);
+            }
+        });
+        var describeTaskName = sourceSet.getTaskName("describe", "module");
+        var descriptorFile = getProject().getLayout().getBuildDirectory().file("tmp/" + describeTaskName + "/" + ModulePackages.ARTIFACT_TYPE);
+        var describeTask = getTasks().register(describeTaskName, DescribeModuleTask.class, task -> {
+            task.getModuleInfo().from(generateTask.flatMap(GenerateModuleInfoTask::getOutputDirectory));
+            task.getSources().from(sourceSet.getJava());
+            task.getArtifactName().set(getProject().getDisplayName());
+            task.getDescriptorFile().set(descriptorFile);
+        });
+        // consumers checking their module graph follow this module from its descriptor and sources, without waiting on
+        // its compilation
+        var describedModule = getProject().files(descriptorFile).builtBy(describeTask);
+        for (var elements : List.of(apiElements, runtimeElements)) {
+            elements.configure(c -> directoryVariant(c, "modulePackages", MODULE_PACKAGES, ModulePackages.ARTIFACT_TYPE, descriptorFile.map(RegularFile::getAsFile), describedModule.getBuildDependencies()));
+        }
+
+        var moduleIndexService = moduleIndexService();
+        if (moduleIndexService != null) {
+            // run on request, like writing dependency locks, since it changes a file of the user's
+            getTasks().register(sourceSet.getTaskName("update", "moduleIndex"), UpdateModuleIndexTask.class, task -> {
+                var identities = unindexedArtifacts(moduleDependencies.get(), scopes);
+                task.getIdentityFiles().from(identities.getArtifactFiles());
+                // resolved artifacts themselves cannot be stored in the configuration cache
+                task.getIdentities().set(identities.getResolvedArtifacts().map(artifacts -> artifacts.stream()
+                    .filter(a -> a.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier)
+                    .map(a -> ModuleIndex.coordinates((ModuleComponentIdentifier) a.getId().getComponentIdentifier()) + " " + a.getFile().getAbsolutePath())
+                    .toList()
+                ));
+                task.getIndexService().set(moduleIndexService);
+                task.usesService(moduleIndexService);
+            });
+        }
+        if (bytecode) {
+            // not part of the compile task's output, so that module set changes never cause a recompile
+            sourceSet.getOutput().dir(Map.of("builtBy", generateTask), outputDirectory);
+        } else {
+            // querying the source directories should not realize the task
+            sourceSet.getJava().srcDir(getProject().files(outputDirectory).builtBy(generateTask));
+        }
+
+        var validateTaskName = sourceSet.getTaskName("validate", "moduleGraph");
+        var validateTask = getTasks().register(validateTaskName, ValidateModuleGraphTask.class, task -> {
+            task.getModuleInfo().from(generateTask.flatMap(GenerateModuleInfoTask::getOutputDirectory));
+            task.getSources().from(sourceSet.getJava());
+            task.getCompileModules().from(compileClasspath.map(this::modulePackagesArtifacts));
+            task.getRuntimeModules().from(runtimeClasspath.map(this::modulePackagesArtifacts));
+            task.getJavaCompiler().set(getTasks().named(sourceSet.getCompileJavaTaskName(), JavaCompile.class).flatMap(JavaCompile::getJavaCompiler));
+            task.getReportFile().set(getProject().getLayout().getBuildDirectory().file("reports/" + validateTaskName + "/report.json"));
+        });
+        if (spec.getValidateModuleGraph().get()) {
+            // with bytecode, the descriptor is generated from the compiled classes, so the graph can then only be
+            // checked once they exist
+            var before = bytecode ? sourceSet.getClassesTaskName() : sourceSet.getCompileJavaTaskName();
+            getTasks().named(before, task -> task.dependsOn(validateTask));
+        }
+
+        if (!bytecode) {
+            // with bytecode, neither the sources nor the classes are a module, so Gradle never looks for a module path
+            classifiedModulePath(sourceSet, compileClasspath, runtimeClasspath);
+        }
+
+        var modulePath = getProject().files(getTasks().named(sourceSet.getJarTaskName(), Jar.class).flatMap(Jar::getArchiveFile), runtimeClasspath);
+        // jlink resolves the image from the compiled descriptor, so it links exactly the modules generated above
+        getTasks().register(sourceSet.getTaskName(null, "jlink"), JlinkTask.class, task -> {
+            task.getModulePath().from(modulePath);
+            task.getModule().set(spec.getName());
+            task.getJavaCompiler().set(getTasks().named(sourceSet.getCompileJavaTaskName(), JavaCompile.class).flatMap(JavaCompile::getJavaCompiler));
+            task.getOutputDirectory().set(getProject().getLayout().getBuildDirectory().dir("images/" + sourceSet.getName()));
+        });
+        getTasks().register(sourceSet.getTaskName(null, "cdsArchive"), CdsArchiveTask.class, task -> {
+            task.getModulePath().from(modulePath);
+            task.getModule().set(spec.getName());
+            task.getJavaLauncher().set(getJavaToolchainService().launcherFor(getJava().getToolchain()));
+            task.getArchiveFile().set(getProject().getLayout().getBuildDirectory().file("cds/" + sourceSet.getName() + "/archive"));
+        });
+        var trimTaskName = sourceSet.getTaskName("trim", "modulePath");
+        getTasks().register(trimTaskName, TrimModulePathTask.class, task -> {
+            task.getModulePath().from(modulePath);
+            task.getRootModules().add(spec.getName());
+            task.getArgumentFile().set(getProject().getLayout().getBuildDirectory().file("tmp/" + trimTaskName + "/jvm.args"));
+            task.getUnreachableFile().set(getProject().getLayout().getBuildDirectory().file("tmp/" + trimTaskName + "/unreachable.txt"));
         });
-        sourceSet.getJava().srcDir(generateTask.flatMap(GenerateModuleInfoTask::getOutputDirectory));
     }
 }
@@ -0,0 +1,10 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.attributes.Attribute;
+
+public final class ExtendedJavaConventionsAttributes {
+    public static final Attribute<String> MODULE_NAME = Attribute.of("dev.lukebemish.extended-java-conventions.module-name", String.class);
+    public static final Attribute<Boolean> MODULE_OPEN = Attribute.of("dev.lukebemish.extended-java-conventions.module-open", Boolean.class);
+
+    private ExtendedJavaConventionsAttributes() {}
+}
@@ -17,6 +17,9 @@ public void apply(Project target) {
             if (getProperty(ExtendedJavaConventionsProperties.LOCAL)) {
                 extension.local();
             }
+            if (getProperty(ExtendedJavaConventionsProperties.SOURCEPATH)) {
+                extension.sourcepath();
+            }
         });
     }
 
@@ -3,6 +3,9 @@
 public final class ExtendedJavaConventionsProperties {
     public static final String SOURCEPATH = "dev.lukebemish.extended-java-conventions.sourcepath";
     public static final String LOCAL = "dev.lukebemish.extended-java-conventions.local";
+    public static final String METRICS = "dev.lukebemish.extended-java-conventions.metrics";
+    public static final String MODULE_INDEX = "dev.lukebemish.extended-java-conventions.module-index";
+    public static final String BUNDLED_MODULE_INDEX = "dev.lukebemish.extended-java-conventions.bundled-module-index";
 
     private ExtendedJavaConventionsProperties() {}
 }
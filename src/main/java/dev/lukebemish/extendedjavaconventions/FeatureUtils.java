@@ -3,6 +3,7 @@
 import org.gradle.api.Action;
 import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.ConsumableConfiguration;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConfigurationPublications;
 import org.gradle.api.component.AdhocComponentWithVariants;
@@ -11,94 +12,94 @@
 import org.gradle.api.tasks.SourceSetContainer;
 
 import javax.inject.Inject;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-class FeatureUtils {
+public final class FeatureUtils {
     private FeatureUtils() {}
 
+    // Configurations of the feature are only ever looked up by name when they are needed, so the feature may be
+    // registered before or after this is used, and nothing is realized that is not itself used
     public static abstract class Context {
-        private final NamedDomainObjectProvider<Configuration> runtimeElements;
-        private final NamedDomainObjectProvider<Configuration> apiElements;
-        private final Configuration firstFound;
         private final SourceSet sourceSet;
-        private final AdhocComponentWithVariants component;
+        private final Map<String, List<Action<? super ConfigurationPublications>>> pendingOutgoing = new HashMap<>();
 
         @Inject
-        public abstract Project getProject();
+        protected abstract Project getProject();
 
         @Inject
-        public Context(SourceSet sourceSet, Configuration firstFound) {
+        public Context(SourceSet sourceSet) {
             this.sourceSet = sourceSet;
-            this.firstFound = firstFound;
-            this.runtimeElements = getProject().getConfigurations().named(sourceSet.getRuntimeElementsConfigurationName());
-            this.apiElements = getProject().getConfigurations().named(sourceSet.getApiElementsConfigurationName());
-            this.component = (AdhocComponentWithVariants) getProject().getComponents().getByName("java");
         }
 
-        public void withCapabilities(Configuration variant) {
-            firstFound.getOutgoing().getCapabilities().forEach(capability ->
-                variant.getOutgoing().capability(capability)
-            );
+        public SourceSet getSourceSet() {
+            return sourceSet;
         }
 
-        public void publishWithVariants(Configuration variant) {
-            withCapabilities(variant);
-            component.addVariantsFromConfiguration(variant, ConfigurationVariantDetails::mapToOptional);
+        public NamedDomainObjectProvider<Configuration> getApiElements() {
+            return getProject().getConfigurations().named(sourceSet.getApiElementsConfigurationName());
+        }
+
+        public NamedDomainObjectProvider<Configuration> getRuntimeElements() {
+            return getProject().getConfigurations().named(sourceSet.getRuntimeElementsConfigurationName());
         }
 
         public AdhocComponentWithVariants getComponent() {
-            return component;
+            return (AdhocComponentWithVariants) getProject().getComponents().getByName("java");
         }
 
-        public SourceSet getSourceSet() {
-            return sourceSet;
+        // the capabilities of the feature are copied once the variant is realized, which is also only when they are
+        // needed
+        public void withCapabilities(NamedDomainObjectProvider<? extends Configuration> variant) {
+            variant.configure(configuration -> {
+                getApiElements().get().getOutgoing().getCapabilities().forEach(capability ->
+                    configuration.getOutgoing().capability(capability)
+                );
+            });
         }
 
-        public NamedDomainObjectProvider<Configuration> getRuntimeElements() {
-            return runtimeElements;
+        // a published variant must exist when the component is published, so it alone is realized here
+        public void publishWithVariants(NamedDomainObjectProvider<? extends Configuration> variant) {
+            withCapabilities(variant);
+            getComponent().addVariantsFromConfiguration(variant.get(), ConfigurationVariantDetails::mapToOptional);
         }
 
-        public NamedDomainObjectProvider<Configuration> getApiElements() {
-            return apiElements;
+        public NamedDomainObjectProvider<ConsumableConfiguration> variant(String name, Action<? super ConsumableConfiguration> action) {
+            var variant = getProject().getConfigurations().consumable(sourceSet.getTaskName(null, name + "Elements"), action);
+            publishWithVariants(variant);
+            return variant;
         }
 
-        public void modifyOutgoing(Action<ConfigurationPublications> action) {
-            action.execute(apiElements.get().getOutgoing());
-            action.execute(runtimeElements.get().getOutgoing());
-            var sourcesName = sourceSet.getSourcesElementsConfigurationName();
-            var javadocName = sourceSet.getJavadocElementsConfigurationName();
-            getProject().getConfigurations().configureEach(configuration -> {
-                if (configuration.getName().equals(sourcesName) || configuration.getName().equals(javadocName)) {
-                    action.execute(configuration.getOutgoing());
+        public void modifyOutgoing(Action<? super ConfigurationPublications> action) {
+            var configurations = getProject().getConfigurations();
+            for (var name : List.of(
+                sourceSet.getApiElementsConfigurationName(),
+                sourceSet.getRuntimeElementsConfigurationName(),
+                sourceSet.getSourcesElementsConfigurationName(),
+                sourceSet.getJavadocElementsConfigurationName()
+            )) {
+                if (configurations.getNames().contains(name)) {
+                    configurations.named(name).configure(configuration -> action.execute(configuration.getOutgoing()));
+                    continue;
                 }
-            });
+                // configurations registered later, like those of sources and javadoc jars, share a single hook
+                if (pendingOutgoing.isEmpty()) {
+                    configurations.named(pendingOutgoing::containsKey).configureEach(configuration -> {
+                        for (var pending : pendingOutgoing.get(configuration.getName())) {
+                            pending.execute(configuration.getOutgoing());
+                        }
+                    });
+                }
+                pendingOutgoing.computeIfAbsent(name, k -> new ArrayList<>()).add(action);
+            }
         }
     }
 
-    public static void forSourceSetFeature(Project project, String sourceSetName, Action<Context> action) {
-        var sourceSet = project.getExtensions().getByType(SourceSetContainer.class).getByName(sourceSetName);
-        var runtimeElementsLocated = new AtomicBoolean();
-        var apiElementsLocated = new AtomicBoolean();
-        var executed = new AtomicBoolean(false);
-        var firstFound = new AtomicReference<Configuration>();
-        Runnable onConfig = () -> {
-            if (runtimeElementsLocated.get() && apiElementsLocated.get() && !executed.get()) {
-                executed.set(true);
-                action.execute(project.getObjects().newInstance(Context.class, sourceSet, firstFound.get()));
-            }
-        };
-        var runtimeElements = project.getConfigurations().named(c -> c.equals(sourceSet.getRuntimeElementsConfigurationName()));
-        var apiElements = project.getConfigurations().named(c -> c.equals(sourceSet.getApiElementsConfigurationName()));
-        runtimeElements.all(c -> {
-            firstFound.updateAndGet(old -> old == null ? c : old);
-            runtimeElementsLocated.set(true);
-            onConfig.run();
-        });
-        apiElements.all(c -> {
-            firstFound.updateAndGet(old -> old == null ? c : old);
-            apiElementsLocated.set(true);
-            onConfig.run();
+    public static void forSourceSetFeature(Project project, String sourceSetName, Action<? super Context> action) {
+        project.getExtensions().getByType(SourceSetContainer.class).named(sourceSetName, sourceSet -> {
+            action.execute(project.getObjects().newInstance(Context.class, sourceSet));
         });
     }
 }
@@ -0,0 +1,353 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import javax.inject.Inject;
+import javax.lang.model.SourceVersion;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.module.InvalidModuleDescriptorException;
+import java.lang.module.ModuleDescriptor;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+public abstract class GenerateModuleInfoAction implements WorkAction<GenerateModuleInfoAction.Parameters> {
+    public interface Parameters extends WorkParameters {
+        Property<String> getTaskPath();
+
+        Property<ModuleDeclaration> getDeclaration();
+
+        ConfigurableFileCollection getRequireStatic();
+
+        ConfigurableFileCollection getRequireTransitive();
+
+        ConfigurableFileCollection getRequireRuntime();
+
+        ListProperty<String> getPublishedRuntime();
+
+        ListProperty<String> getPublishedStatic();
+
+        ListProperty<String> getPublishedTransitive();
+
+        ConfigurableFileCollection getClasses();
+
+        ConfigurableFileCollection getModulePackages();
+
+        DirectoryProperty getOutputDirectory();
+
+        RegularFileProperty getPruneReport();
+
+        RegularFileProperty getMetricsFile();
+
+        Property<ModuleInfoMetricsService> getMetricsService();
+    }
+
+    @Inject
+    public GenerateModuleInfoAction() {}
+
+    private static List<ModuleIdentity> readModuleIdentities(FileCollection descriptors) throws IOException {
+        var modules = new ArrayList<ModuleIdentity>();
+        for (var descriptor : descriptors) {
+            modules.addAll(ModuleIdentity.read(descriptor.toPath()));
+        }
+        return modules;
+    }
+
+    // packages are the directories holding classes or resources, as the module finder sees them once packaged
+    private static Set<String> modulePackages(FileCollection classes) {
+        var packages = new TreeSet<String>();
+        classes.getAsFileTree().visit((FileVisitDetails details) -> {
+            var segments = details.getRelativePath().getSegments();
+            if (!details.isDirectory() && segments.length > 1) {
+                var pkg = String.join(".", List.of(segments).subList(0, segments.length - 1));
+                // directories like META-INF are not packages at all
+                if (SourceVersion.isName(pkg)) {
+                    packages.add(pkg);
+                }
+            }
+        });
+        return packages;
+    }
+
+    @Override
+    public void execute() {
+        try {
+            run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void run() throws IOException {
+        var parameters = getParameters();
+        var event = new GenerateModuleInfoEvent();
+        event.begin();
+        var readingStart = System.nanoTime();
+
+        var requireRuntime = readModuleIdentities(parameters.getRequireRuntime());
+        var requireStatic = readModuleIdentities(parameters.getRequireStatic());
+        var requireTransitive = readModuleIdentities(parameters.getRequireTransitive());
+        var writingStart = System.nanoTime();
+
+        var runtimeNames = requireRuntime.stream()
+            .map(ModuleIdentity::name)
+            .collect(Collectors.toCollection(HashSet::new));
+        runtimeNames.addAll(parameters.getPublishedRuntime().get());
+        var staticNames = requireStatic.stream()
+            .map(ModuleIdentity::name)
+            .collect(Collectors.toCollection(HashSet::new));
+        staticNames.addAll(parameters.getPublishedStatic().get());
+        var transitiveNames = requireTransitive.stream()
+            .map(ModuleIdentity::name)
+            .collect(Collectors.toCollection(HashSet::new));
+        transitiveNames.addAll(parameters.getPublishedTransitive().get());
+
+        var declaration = parameters.getDeclaration().get();
+
+        // require static transitive -- static and transitive, but not runtime
+        var requireStaticTransitiveNames = new HashSet<>(staticNames);
+        requireStaticTransitiveNames.removeAll(runtimeNames);
+        requireStaticTransitiveNames.removeIf(n -> !transitiveNames.contains(n));
+
+        // require transitive -- transitive and runtime
+        var requireTransitiveNames = new HashSet<>(runtimeNames);
+        requireTransitiveNames.removeIf(n -> !transitiveNames.contains(n));
+
+        // require static -- static and not runtime or transitive
+        var requireStaticNames = new HashSet<>(staticNames);
+        requireStaticNames.removeAll(runtimeNames);
+        requireStaticNames.removeAll(transitiveNames);
+
+        // require -- runtime and not transitive
+        var requireNames = new HashSet<>(runtimeNames);
+        requireNames.removeAll(transitiveNames);
+
+        if (declaration.pruneRequires()) {
+            pruneRequires(staticNames, requireStaticTransitiveNames, requireTransitiveNames, requireStaticNames, requireNames);
+        }
+
+        // explicit requires are added after pruning, and replace whatever was inferred for the same module, so they
+        // always win
+        for (var requires : declaration.requires()) {
+            var name = requires.module();
+            requireStaticTransitiveNames.remove(name);
+            requireTransitiveNames.remove(name);
+            requireStaticNames.remove(name);
+            requireNames.remove(name);
+            if (requires.isStatic()) {
+                if (requires.isTransitive()) {
+                    requireStaticTransitiveNames.add(name);
+                } else {
+                    requireStaticNames.add(name);
+                }
+            } else if (requires.isTransitive()) {
+                requireTransitiveNames.add(name);
+            } else {
+                requireNames.add(name);
+            }
+        }
+
+        var outputDirectory = parameters.getOutputDirectory().get().getAsFile().toPath();
+        Files.createDirectories(outputDirectory);
+        if (declaration.bytecode()) {
+            Files.deleteIfExists(outputDirectory.resolve("module-info.java"));
+            var bytes = moduleInfoClass(declaration, requireStaticTransitiveNames, requireTransitiveNames, requireStaticNames, requireNames);
+            // javac would reject a descriptor naming packages the module does not have, so the same is checked here
+            // rather than when the module is first loaded
+            var packages = modulePackages(parameters.getClasses());
+            try {
+                ModuleDescriptor.read(ByteBuffer.wrap(bytes), () -> packages);
+            } catch (InvalidModuleDescriptorException e) {
+                throw new GradleException("Generated module descriptor of " + declaration.name() + " is invalid: " + e.getMessage(), e);
+            }
+            Files.write(outputDirectory.resolve("module-info.class"), bytes);
+        } else {
+            Files.deleteIfExists(outputDirectory.resolve("module-info.class"));
+            Files.writeString(outputDirectory.resolve("module-info.java"), moduleInfoSource(declaration, requireStaticTransitiveNames, requireTransitiveNames, requireStaticNames, requireNames), StandardCharsets.UTF_8);
+        }
+        var end = System.nanoTime();
+
+        var entries = parameters.getRequireRuntime().getFiles().size() + parameters.getRequireStatic().getFiles().size() + parameters.getRequireTransitive().getFiles().size();
+        var requires = new LinkedHashMap<String, Integer>();
+        requires.put("requires", requireNames.size());
+        requires.put("requires static", requireStaticNames.size());
+        requires.put("requires transitive", requireTransitiveNames.size());
+        requires.put("requires static transitive", requireStaticTransitiveNames.size());
+        var publishedEntries = parameters.getPublishedRuntime().get().size() + parameters.getPublishedStatic().get().size() + parameters.getPublishedTransitive().get().size();
+        var metrics = new ModuleInfoMetrics(parameters.getTaskPath().get(), writingStart - readingStart, end - writingStart, entries, publishedEntries, requires);
+
+        event.task = metrics.task();
+        event.reading = metrics.readingNanos();
+        event.writing = metrics.writingNanos();
+        event.entries = metrics.entries();
+        event.publishedEntries = metrics.publishedEntries();
+        event.requires = requireNames.size();
+        event.requiresStatic = requireStaticNames.size();
+        event.requiresTransitive = requireTransitiveNames.size();
+        event.requiresStaticTransitive = requireStaticTransitiveNames.size();
+        event.commit();
+
+        var metricsFile = parameters.getMetricsFile().get().getAsFile().toPath();
+        Files.createDirectories(metricsFile.getParent());
+        Files.writeString(metricsFile, metrics.toJson("") + "\n", StandardCharsets.UTF_8);
+        if (parameters.getMetricsService().isPresent()) {
+            parameters.getMetricsService().get().add(metrics);
+        }
+    }
+
+    private void pruneRequires(Set<String> compileNames, Set<String> requireStaticTransitiveNames, Set<String> requireTransitiveNames, Set<String> requireStaticNames, Set<String> requireNames) throws IOException {
+        var referenced = ClassReferences.referencedPackages(getParameters().getClasses());
+        var packages = new HashMap<String, Set<String>>();
+        for (var descriptor : getParameters().getModulePackages()) {
+            for (var module : ModulePackages.read(descriptor.toPath())) {
+                packages.computeIfAbsent(module.module().name(), k -> new HashSet<>()).addAll(module.packages());
+            }
+        }
+
+        var report = new StringBuilder();
+        var all = new TreeSet<String>();
+        all.addAll(requireStaticTransitiveNames);
+        all.addAll(requireTransitiveNames);
+        all.addAll(requireStaticNames);
+        all.addAll(requireNames);
+        for (var name : all) {
+            var modulePackages = packages.getOrDefault(name, Set.of());
+            var used = modulePackages.stream().filter(referenced::contains).sorted().toList();
+            if (!used.isEmpty()) {
+                report.append("kept ").append(name).append(": references ").append(String.join(", ", used)).append('\n');
+                continue;
+            }
+            var wasStatic = requireStaticNames.contains(name) || requireStaticTransitiveNames.contains(name);
+            requireStaticTransitiveNames.remove(name);
+            requireTransitiveNames.remove(name);
+            requireStaticNames.remove(name);
+            requireNames.remove(name);
+            // compile-only annotations and the like leave no trace in bytecode, so modules needed to compile stay static
+            if (compileNames.contains(name) && !wasStatic) {
+                requireStaticNames.add(name);
+                report.append("static ").append(name).append(": unreferenced, on the compile classpath\n");
+            } else {
+                report.append("dropped ").append(name).append(": unreferenced").append(wasStatic ? "" : ", runtime only").append('\n');
+            }
+        }
+
+        if (getParameters().getPruneReport().isPresent()) {
+            var reportFile = getParameters().getPruneReport().get().getAsFile().toPath();
+            Files.createDirectories(reportFile.getParent());
+            Files.writeString(reportFile, report.toString(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static String moduleInfoSource(ModuleDeclaration declaration, Set<String> requireStaticTransitiveNames, Set<String> requireTransitiveNames, Set<String> requireStaticNames, Set<String> requireNames) {
+        var builder = new StringBuilder();
+        if (declaration.open()) {
+            builder.append("open ");
+        }
+        builder.append("module ").append(declaration.name()).append(" {\n");
+
+        for (var name : requireStaticTransitiveNames) {
+            writeLine(builder, "requires static transitive", name);
+        }
+
+        for (var name : requireTransitiveNames) {
+            writeLine(builder, "requires transitive", name);
+        }
+
+        for (var name : requireStaticNames) {
+            writeLine(builder, "requires static", name);
+        }
+
+        for (var name : requireNames) {
+            writeLine(builder, "requires", name);
+        }
+
+        if (!declaration.uses().isEmpty()) {
+            builder.append("\n");
+            for (var uses : declaration.uses()) {
+                builder.append("    uses ").append(uses).append(";\n");
+            }
+        }
+        if (!declaration.provides().isEmpty()) {
+            builder.append("\n");
+            for (var provides : declaration.provides()) {
+                builder.append("    provides ").append(provides.service()).append(" with ");
+                builder.append(String.join(", ", provides.implementations()));
+                builder.append(";\n");
+            }
+        }
+        writeTargets(builder, "exports", declaration.exports());
+        writeTargets(builder, "opens", declaration.opens());
+
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private static void writeTargets(StringBuilder builder, String directive, List<ModuleDeclaration.Target> targets) {
+        if (targets.isEmpty()) {
+            return;
+        }
+        builder.append("\n");
+        for (var target : targets) {
+            builder.append("    ").append(directive).append(" ").append(target.pkg());
+            if (!target.modules().isEmpty()) {
+                builder.append(" to ");
+                builder.append(String.join(", ", target.modules()));
+            }
+            builder.append(";\n");
+        }
+    }
+
+    static byte[] moduleInfoClass(ModuleDeclaration declaration, Set<String> requireStaticTransitiveNames, Set<String> requireTransitiveNames, Set<String> requireStaticNames, Set<String> requireNames) throws IOException {
+        var writer = new ModuleInfoClassWriter(declaration.name(), declaration.open());
+        for (var name : requireStaticTransitiveNames) {
+            writer.requires(name, true, true);
+        }
+        for (var name : requireTransitiveNames) {
+            writer.requires(name, false, true);
+        }
+        for (var name : requireStaticNames) {
+            writer.requires(name, true, false);
+        }
+        for (var name : requireNames) {
+            writer.requires(name, false, false);
+        }
+        for (var uses : declaration.uses()) {
+            writer.uses(uses);
+        }
+        for (var provides : declaration.provides()) {
+            writer.provides(provides.service(), provides.implementations());
+        }
+        for (var exports : declaration.exports()) {
+            writer.exports(exports.pkg(), exports.modules());
+        }
+        for (var opens : declaration.opens()) {
+            writer.opens(opens.pkg(), opens.modules());
+        }
+        return writer.toByteArray();
+    }
+
+    private static void writeLine(StringBuilder builder, String prefix, String module) {
+        builder.append("    ").append(prefix).append(" ");
+        builder.append(module);
+        // versions not used at present because javac handles this -- unfortunately left out for runtime-only dependencies!
+        builder.append(";\n");
+    }
+}
@@ -0,0 +1,41 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("dev.lukebemish.extendedjavaconventions.GenerateModuleInfo")
+@Label("Generate Module Info")
+@Category({"Gradle", "Extended Java Conventions"})
+final class GenerateModuleInfoEvent extends Event {
+    @Label("Task")
+    String task;
+
+    @Label("Reading")
+    @Timespan
+    long reading;
+
+    @Label("Writing")
+    @Timespan
+    long writing;
+
+    @Label("Entries")
+    int entries;
+
+    @Label("Published Entries")
+    int publishedEntries;
+
+    @Label("Requires")
+    int requires;
+
+    @Label("Requires Static")
+    int requiresStatic;
+
+    @Label("Requires Transitive")
+    int requiresTransitive;
+
+    @Label("Requires Static Transitive")
+    int requiresStaticTransitive;
+}
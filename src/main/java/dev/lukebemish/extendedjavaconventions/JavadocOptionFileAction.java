@@ -0,0 +1,21 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.javadoc.Javadoc;
+
+import javax.inject.Inject;
+
+// javadoc takes option files as plain files rather than argument providers, so the file is only added once the task runs
+public abstract class JavadocOptionFileAction implements Action<Task> {
+    @Inject
+    public JavadocOptionFileAction() {}
+
+    public abstract RegularFileProperty getOptionFile();
+
+    @Override
+    public void execute(Task task) {
+        ((Javadoc) task).getOptions().optionFiles(getOptionFile().get().getAsFile());
+    }
+}
@@ -0,0 +1,110 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaCompiler;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public abstract class JlinkTask extends DefaultTask {
+    @Classpath
+    public abstract ConfigurableFileCollection getModulePath();
+
+    @Input
+    public abstract Property<String> getModule();
+
+    @Input
+    public abstract ListProperty<String> getAddModules();
+
+    @Input
+    public abstract Property<Boolean> getStripDebug();
+
+    @Input
+    @Optional
+    public abstract Property<String> getCompress();
+
+    @Input
+    public abstract Property<Boolean> getBindServices();
+
+    @Input
+    @Optional
+    public abstract Property<String> getLauncherName();
+
+    @Input
+    @Optional
+    public abstract Property<String> getMainClass();
+
+    // jlink links the modules of the JDK it belongs to into the image
+    @Nested
+    public abstract Property<JavaCompiler> getJavaCompiler();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @Inject
+    public JlinkTask() {
+        getStripDebug().convention(false);
+        getBindServices().convention(false);
+    }
+
+    @TaskAction
+    public void run() throws IOException {
+        var outputDirectory = getOutputDirectory().get().getAsFile();
+        // jlink refuses to write into an existing directory
+        getFileSystemOperations().delete(spec -> spec.delete(outputDirectory));
+
+        var module = getModule().get();
+        var modules = new ArrayList<String>();
+        modules.add(module);
+        modules.addAll(getAddModules().get());
+
+        var args = new ArrayList<String>();
+        args.add(ArgumentFiles.write(getTemporaryDir().toPath().resolve("module-path.args"), List.of("--module-path", ArgumentFiles.path(getModulePath()))));
+        args.add("--add-modules");
+        args.add(String.join(",", modules));
+        if (getStripDebug().get()) {
+            args.add("--strip-debug");
+        }
+        if (getCompress().isPresent()) {
+            args.add("--compress=" + getCompress().get());
+        }
+        if (getBindServices().get()) {
+            args.add("--bind-services");
+        }
+        if (getLauncherName().isPresent()) {
+            var target = getMainClass().isPresent() ? module + "/" + getMainClass().get() : module;
+            args.add("--launcher");
+            args.add(getLauncherName().get() + "=" + target);
+        }
+        args.add("--output");
+        args.add(outputDirectory.getAbsolutePath());
+
+        // toolchains always run on the machine running the build, so they share its executable suffix
+        var suffix = System.getProperty("os.name").startsWith("Windows") ? ".exe" : "";
+        var jlink = getJavaCompiler().get().getMetadata().getInstallationPath().file("bin/jlink" + suffix).getAsFile();
+        getExecOperations().exec(spec -> {
+            spec.executable(jlink);
+            spec.args(args);
+        });
+    }
+}
@@ -10,12 +10,14 @@
 import java.util.Date;
 
 public class LazyDirectoryArtifact implements PublishArtifact {
+    private final String name;
     private final String type;
     private final Provider<File> fileProvider;
     private final TaskDependency taskDependency;
 
     @Inject
-    public LazyDirectoryArtifact(String type, Provider<File> fileProvider, TaskDependency taskDependency) {
+    public LazyDirectoryArtifact(String name, String type, Provider<File> fileProvider, TaskDependency taskDependency) {
+        this.name = name;
         this.type = type;
         this.fileProvider = fileProvider;
         this.taskDependency = taskDependency;
@@ -23,7 +25,8 @@ public LazyDirectoryArtifact(String type, Provider<File> fileProvider, TaskDepen
 
     @Override
     public String getName() {
-        return getFile().getName();
+        // the name is needed to build variant metadata, so it must not depend on the directory being known
+        return this.name;
     }
 
     @Override
@@ -0,0 +1,24 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.attributes.AttributeCompatibilityRule;
+import org.gradle.api.attributes.CompatibilityCheckDetails;
+import org.gradle.api.attributes.LibraryElements;
+
+import javax.inject.Inject;
+
+public abstract class ModuleClassesCompatibilityRule implements AttributeCompatibilityRule<LibraryElements> {
+    @Inject
+    public ModuleClassesCompatibilityRule() {}
+
+    @Override
+    public void execute(CompatibilityCheckDetails<LibraryElements> details) {
+        var consumer = details.getConsumerValue();
+        var producer = details.getProducerValue();
+        // anything whose classes are not known to hold a module descriptor, like external dependencies or plain
+        // projects, is read as a jar, as are the contents of modules whose producer does not publish them
+        var reads = consumer != null && (consumer.getName().equals("module-classes") || consumer.getName().equals("module-packages"));
+        if (reads && producer != null && producer.getName().equals(LibraryElements.JAR)) {
+            details.compatible();
+        }
+    }
+}
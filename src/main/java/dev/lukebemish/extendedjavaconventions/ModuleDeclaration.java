@@ -0,0 +1,48 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.List;
+
+// an immutable snapshot of a module-info spec, which can be handed to a worker
+record ModuleDeclaration(
+    String name,
+    boolean open,
+    boolean bytecode,
+    boolean pruneRequires,
+    List<Requires> requires,
+    List<String> uses,
+    List<Provides> provides,
+    List<Target> exports,
+    List<Target> opens
+) implements Serializable {
+    record Requires(String module, boolean isStatic, boolean isTransitive) implements Serializable {}
+
+    record Provides(String service, List<String> implementations) implements Serializable {}
+
+    record Target(String pkg, List<String> modules) implements Serializable {}
+
+    static ModuleDeclaration of(ModuleInfoSpec spec) {
+        return new ModuleDeclaration(
+            spec.getName().get(),
+            spec.getOpen().get(),
+            spec.getBytecode().get(),
+            spec.getPruneRequires().get(),
+            spec.getRequires().get().stream()
+                .map(r -> new Requires(r.getModule().get(), r.getStatic().get(), r.getTransitive().get()))
+                .toList(),
+            List.copyOf(spec.getUses().get()),
+            spec.getProvides().get().stream()
+                .map(p -> new Provides(p.getService().get(), List.copyOf(p.getImplementations().get())))
+                .toList(),
+            targets(spec.getExports().get()),
+            targets(spec.getOpens().get())
+        );
+    }
+
+    private static List<Target> targets(List<ModuleInfoSpec.PackageSpec> specs) {
+        return specs.stream()
+            .map(p -> new Target(p.getPackage().get(), p.getModules().get().stream().sorted(Comparator.naturalOrder()).toList()))
+            .toList();
+    }
+}
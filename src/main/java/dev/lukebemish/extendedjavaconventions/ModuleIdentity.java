@@ -0,0 +1,43 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+record ModuleIdentity(String name, Kind kind) {
+    static final String ARTIFACT_TYPE = "module-identity";
+
+    enum Kind {
+        EXPLICIT,
+        AUTOMATIC
+    }
+
+    static List<ModuleIdentity> read(Path descriptor) throws IOException {
+        return Files.readAllLines(descriptor, StandardCharsets.UTF_8).stream()
+            .filter(s -> !s.isBlank())
+            .map(ModuleIdentity::of)
+            .toList();
+    }
+
+    static void write(Path descriptor, List<ModuleIdentity> modules) throws IOException {
+        var builder = new StringBuilder();
+        for (var module : modules) {
+            builder.append(module.asLine()).append('\n');
+        }
+        Files.writeString(descriptor, builder.toString(), StandardCharsets.UTF_8);
+    }
+
+    String asLine() {
+        return kind.name() + " " + name;
+    }
+
+    static ModuleIdentity of(String line) {
+        var parts = line.split(" ", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid module identity line: " + line);
+        }
+        return new ModuleIdentity(parts[1], Kind.valueOf(parts[0]));
+    }
+}
@@ -0,0 +1,97 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// module identities of external components, by coordinates, so that their artifacts need not be inspected
+final class ModuleIndex {
+    static final String HEADER = "module-index 1";
+
+    private static @Nullable ModuleIndex bundled;
+
+    private final Map<String, ModuleIdentity> entries;
+
+    private ModuleIndex(Map<String, ModuleIdentity> entries) {
+        this.entries = entries;
+    }
+
+    static ModuleIndex empty() {
+        return new ModuleIndex(Map.of());
+    }
+
+    static synchronized ModuleIndex bundled() {
+        if (bundled == null) {
+            try (var stream = ModuleIndex.class.getResourceAsStream("module-index.txt")) {
+                if (stream == null) {
+                    throw new IllegalStateException("Missing bundled module index");
+                }
+                bundled = parse(new String(stream.readAllBytes(), StandardCharsets.UTF_8), "bundled module index");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return bundled;
+    }
+
+    static ModuleIndex parse(String text, String source) {
+        var entries = new HashMap<String, ModuleIdentity>();
+        var lines = text.lines().map(String::strip).filter(s -> !s.isEmpty() && !s.startsWith("#")).toList();
+        if (lines.isEmpty()) {
+            return new ModuleIndex(entries);
+        }
+        // the format is versioned so that entries can later carry more than the identity without being misread
+        if (!lines.get(0).equals(HEADER)) {
+            throw new IllegalArgumentException("Unsupported " + source + ": expected a first line of '" + HEADER + "' but found '" + lines.get(0) + "'");
+        }
+        for (var line : lines.subList(1, lines.size())) {
+            var parts = line.split(" ", 2);
+            if (parts.length != 2 || parts[0].split(":", -1).length != 3) {
+                throw new IllegalArgumentException("Invalid line in " + source + ": " + line);
+            }
+            entries.put(parts[0], ModuleIdentity.of(parts[1]));
+        }
+        return new ModuleIndex(entries);
+    }
+
+    static String format(Map<String, ModuleIdentity> entries) {
+        var builder = new StringBuilder(HEADER).append('\n');
+        for (var entry : new TreeMap<>(entries).entrySet()) {
+            builder.append(entry.getKey()).append(' ').append(entry.getValue().asLine()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    static String coordinates(ModuleComponentIdentifier id) {
+        return id.getGroup() + ":" + id.getModule() + ":" + id.getVersion();
+    }
+
+    // entries of the other index take precedence
+    ModuleIndex with(ModuleIndex other) {
+        if (other.entries.isEmpty()) {
+            return this;
+        }
+        var merged = new HashMap<>(entries);
+        merged.putAll(other.entries);
+        return new ModuleIndex(merged);
+    }
+
+    Map<String, ModuleIdentity> entries() {
+        return entries;
+    }
+
+    // only external components are indexed; what a project produces may change from one build to the next
+    @Nullable ModuleIdentity find(ComponentIdentifier id) {
+        if (id instanceof ModuleComponentIdentifier module) {
+            return entries.get(coordinates(module));
+        }
+        return null;
+    }
+}
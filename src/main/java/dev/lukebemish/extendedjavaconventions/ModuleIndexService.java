@@ -0,0 +1,60 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public abstract class ModuleIndexService implements BuildService<ModuleIndexService.Parameters>, AutoCloseable {
+    private final Map<String, ModuleIdentity> learned = new ConcurrentHashMap<>();
+
+    public interface Parameters extends BuildServiceParameters {
+        RegularFileProperty getIndexFile();
+    }
+
+    @Inject
+    public ModuleIndexService() {}
+
+    void learn(String coordinates, ModuleIdentity identity) {
+        learned.putIfAbsent(coordinates, identity);
+    }
+
+    // every project learns into the same file, so it is only written once, after all of them are done
+    @Override
+    public void close() {
+        if (learned.isEmpty()) {
+            return;
+        }
+        try {
+            merge(getParameters().getIndexFile().get().getAsFile().toPath(), learned);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void merge(Path indexFile, Map<String, ModuleIdentity> learned) throws IOException {
+        var entries = new HashMap<String, ModuleIdentity>();
+        if (Files.exists(indexFile)) {
+            entries.putAll(ModuleIndex.parse(Files.readString(indexFile, StandardCharsets.UTF_8), "module index " + indexFile).entries());
+        }
+        // entries already in the file may have been corrected by hand, so they are kept
+        var before = entries.size();
+        learned.forEach(entries::putIfAbsent);
+        if (entries.size() == before && Files.exists(indexFile)) {
+            return;
+        }
+        if (indexFile.getParent() != null) {
+            Files.createDirectories(indexFile.getParent());
+        }
+        Files.writeString(indexFile, ModuleIndex.format(entries), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,175 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class ModuleInfoClassWriter {
+    // module descriptors were introduced in Java 9, and every later JVM reads this version
+    private static final int MAJOR_VERSION = 53;
+
+    private static final int ACC_MODULE = 0x8000;
+    private static final int ACC_OPEN = 0x0020;
+    private static final int ACC_TRANSITIVE = 0x0020;
+    private static final int ACC_STATIC_PHASE = 0x0040;
+    private static final int ACC_MANDATED = 0x8000;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private final Map<String, Integer> constants = new LinkedHashMap<>();
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOutput = new DataOutputStream(pool);
+
+    private final List<Requires> requires = new ArrayList<>();
+    private final List<Target> exports = new ArrayList<>();
+    private final List<Target> opens = new ArrayList<>();
+    private final List<String> uses = new ArrayList<>();
+    private final List<Provides> provides = new ArrayList<>();
+
+    private final String name;
+    private final boolean open;
+
+    private record Requires(String module, int flags) {}
+
+    private record Target(String pkg, List<String> modules) {}
+
+    private record Provides(String service, List<String> implementations) {}
+
+    ModuleInfoClassWriter(String name, boolean open) {
+        this.name = name;
+        this.open = open;
+    }
+
+    void requires(String module, boolean isStatic, boolean isTransitive) {
+        if (module.equals("java.base")) {
+            // java.base is always required, and written as mandated below
+            return;
+        }
+        requires.add(new Requires(module, (isStatic ? ACC_STATIC_PHASE : 0) | (isTransitive ? ACC_TRANSITIVE : 0)));
+    }
+
+    void exports(String pkg, List<String> modules) {
+        exports.add(new Target(pkg, modules));
+    }
+
+    void opens(String pkg, List<String> modules) {
+        opens.add(new Target(pkg, modules));
+    }
+
+    void uses(String service) {
+        uses.add(service);
+    }
+
+    void provides(String service, List<String> implementations) {
+        provides.add(new Provides(service, implementations));
+    }
+
+    byte[] toByteArray() throws IOException {
+        var thisClass = constant(CONSTANT_CLASS, "module-info");
+        var moduleAttributeName = utf8("Module");
+
+        var attribute = new ByteArrayOutputStream();
+        var attributeOutput = new DataOutputStream(attribute);
+        attributeOutput.writeShort(constant(CONSTANT_MODULE, name));
+        attributeOutput.writeShort(open ? ACC_OPEN : 0);
+        attributeOutput.writeShort(0);
+
+        attributeOutput.writeShort(requires.size() + 1);
+        attributeOutput.writeShort(constant(CONSTANT_MODULE, "java.base"));
+        attributeOutput.writeShort(ACC_MANDATED);
+        attributeOutput.writeShort(0);
+        for (var entry : requires) {
+            attributeOutput.writeShort(constant(CONSTANT_MODULE, entry.module()));
+            attributeOutput.writeShort(entry.flags());
+            attributeOutput.writeShort(0);
+        }
+
+        writeTargets(attributeOutput, exports);
+        writeTargets(attributeOutput, opens);
+
+        attributeOutput.writeShort(uses.size());
+        for (var service : uses) {
+            attributeOutput.writeShort(constant(CONSTANT_CLASS, internalName(service)));
+        }
+
+        attributeOutput.writeShort(provides.size());
+        for (var entry : provides) {
+            attributeOutput.writeShort(constant(CONSTANT_CLASS, internalName(entry.service())));
+            attributeOutput.writeShort(entry.implementations().size());
+            for (var implementation : entry.implementations()) {
+                attributeOutput.writeShort(constant(CONSTANT_CLASS, internalName(implementation)));
+            }
+        }
+        attributeOutput.flush();
+
+        var bytes = new ByteArrayOutputStream();
+        var output = new DataOutputStream(bytes);
+        output.writeInt(0xCAFEBABE);
+        output.writeShort(0);
+        output.writeShort(MAJOR_VERSION);
+        output.writeShort(constants.size() + 1);
+        poolOutput.flush();
+        pool.writeTo(output);
+        output.writeShort(ACC_MODULE);
+        output.writeShort(thisClass);
+        output.writeShort(0);
+        output.writeShort(0);
+        output.writeShort(0);
+        output.writeShort(0);
+        output.writeShort(1);
+        output.writeShort(moduleAttributeName);
+        output.writeInt(attribute.size());
+        attribute.writeTo(output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeTargets(DataOutputStream output, List<Target> targets) throws IOException {
+        output.writeShort(targets.size());
+        for (var target : targets) {
+            output.writeShort(constant(CONSTANT_PACKAGE, internalName(target.pkg())));
+            output.writeShort(0);
+            output.writeShort(target.modules().size());
+            for (var module : target.modules()) {
+                output.writeShort(constant(CONSTANT_MODULE, module));
+            }
+        }
+    }
+
+    // names are taken as binary names, so nested classes must be given with '$'
+    private static String internalName(String name) {
+        return name.replace('.', '/');
+    }
+
+    private int utf8(String value) throws IOException {
+        var key = CONSTANT_UTF8 + ":" + value;
+        var index = constants.get(key);
+        if (index == null) {
+            poolOutput.writeByte(CONSTANT_UTF8);
+            poolOutput.writeUTF(value);
+            index = constants.size() + 1;
+            constants.put(key, index);
+        }
+        return index;
+    }
+
+    private int constant(int tag, String value) throws IOException {
+        var key = tag + ":" + value;
+        var index = constants.get(key);
+        if (index == null) {
+            var utf8 = utf8(value);
+            poolOutput.writeByte(tag);
+            poolOutput.writeShort(utf8);
+            index = constants.size() + 1;
+            constants.put(key, index);
+        }
+        return index;
+    }
+}
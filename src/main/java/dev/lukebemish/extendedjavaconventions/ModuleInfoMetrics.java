@@ -0,0 +1,38 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+record ModuleInfoMetrics(
+    String task,
+    // reading the identity descriptors the artifact transform wrote; the jars themselves are inspected, and cached,
+    // by the transform before the task runs
+    long readingNanos,
+    long writingNanos,
+    int entries,
+    // modules named by the variant metadata of their producers or by the module index, whose artifacts are never
+    // inspected
+    int publishedEntries,
+    Map<String, Integer> requires
+) {
+    String toJson(String indent) {
+        var builder = new StringBuilder();
+        builder.append(indent).append("{\n");
+        builder.append(indent).append("  \"task\": ").append(quote(task)).append(",\n");
+        builder.append(indent).append("  \"readingNanos\": ").append(readingNanos).append(",\n");
+        builder.append(indent).append("  \"writingNanos\": ").append(writingNanos).append(",\n");
+        builder.append(indent).append("  \"entries\": ").append(entries).append(",\n");
+        builder.append(indent).append("  \"publishedEntries\": ").append(publishedEntries).append(",\n");
+        builder.append(indent).append("  \"requires\": {");
+        builder.append(requires.entrySet().stream()
+            .map(e -> quote(e.getKey()) + ": " + e.getValue())
+            .collect(Collectors.joining(", ")));
+        builder.append("}\n");
+        builder.append(indent).append("}");
+        return builder.toString();
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
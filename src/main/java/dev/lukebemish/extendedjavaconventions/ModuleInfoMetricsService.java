@@ -0,0 +1,47 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+public abstract class ModuleInfoMetricsService implements BuildService<ModuleInfoMetricsService.Parameters>, AutoCloseable {
+    private final ConcurrentLinkedQueue<ModuleInfoMetrics> metrics = new ConcurrentLinkedQueue<>();
+
+    public interface Parameters extends BuildServiceParameters {
+        RegularFileProperty getReportFile();
+    }
+
+    @Inject
+    public ModuleInfoMetricsService() {}
+
+    void add(ModuleInfoMetrics metrics) {
+        this.metrics.add(metrics);
+    }
+
+    @Override
+    public void close() {
+        if (metrics.isEmpty()) {
+            return;
+        }
+        var json = metrics.stream()
+            .sorted(Comparator.comparing(ModuleInfoMetrics::task))
+            .map(m -> m.toJson("  "))
+            .collect(Collectors.joining(",\n", "[\n", "\n]\n"));
+        var reportFile = getParameters().getReportFile().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(reportFile.getParent());
+            Files.writeString(reportFile, json, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
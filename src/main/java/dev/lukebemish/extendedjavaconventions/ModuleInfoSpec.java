@@ -14,6 +14,9 @@ public abstract class ModuleInfoSpec {
     public ModuleInfoSpec() {
         getOpen().convention(false);
         getIncludeTransitive().convention(false);
+        getBytecode().convention(false);
+        getPruneRequires().convention(false);
+        getValidateModuleGraph().convention(false);
     }
 
     @Inject
@@ -28,6 +31,18 @@ public ModuleInfoSpec() {
     @Input
     public abstract Property<Boolean> getIncludeTransitive();
 
+    // write module-info.class next to the compiled classes instead of adding module-info.java to the sources
+    @Input
+    public abstract Property<Boolean> getBytecode();
+
+    // drop requires of modules the compiled classes never reference, or make them static if needed to compile
+    @Input
+    public abstract Property<Boolean> getPruneRequires();
+
+    // check the module graph for missing modules, duplicates and split packages before compiling
+    @Input
+    public abstract Property<Boolean> getValidateModuleGraph();
+
     @Nested
     public abstract ListProperty<PackageSpec> getExports();
 
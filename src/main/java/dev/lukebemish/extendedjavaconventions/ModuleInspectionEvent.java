@@ -0,0 +1,17 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("dev.lukebemish.extendedjavaconventions.ModuleInspection")
+@Label("Module Inspection")
+@Category({"Gradle", "Extended Java Conventions"})
+final class ModuleInspectionEvent extends Event {
+    @Label("Artifact")
+    String artifact;
+
+    @Label("Modules")
+    int modules;
+}
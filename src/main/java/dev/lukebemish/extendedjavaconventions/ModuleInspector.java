@@ -0,0 +1,173 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.module.InvalidModuleDescriptorException;
+import java.lang.module.ModuleDescriptor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+final class ModuleInspector {
+    private static final String MODULE_INFO = "module-info.class";
+    private static final Attributes.Name AUTOMATIC_MODULE_NAME = new Attributes.Name("Automatic-Module-Name");
+    // Versioned module descriptors must share the module name of the root descriptor, so the most recent one is as good
+    // as any. Using it rather than Runtime.version() keeps the result independent of the JVM that runs the build.
+    private static final Runtime.Version LATEST_RELEASE = Runtime.Version.parse(String.valueOf(Integer.MAX_VALUE));
+
+    private static final Pattern DASH_VERSION = Pattern.compile("-(\\d+(\\.|$))");
+    private static final Pattern NON_ALPHANUM = Pattern.compile("[^A-Za-z0-9]");
+    private static final Pattern REPEATING_DOTS = Pattern.compile("(\\.)(\\1)+");
+    private static final Pattern LEADING_DOTS = Pattern.compile("^\\.");
+    private static final Pattern TRAILING_DOTS = Pattern.compile("\\.$");
+
+    private ModuleInspector() {}
+
+    // what the module declares about itself; requires are those of explicit modules that must be present at run time
+    private record Descriptor(ModuleIdentity identity, boolean derivedName, List<String> requires) {}
+
+    static List<ModuleIdentity> inspect(Iterable<File> files) {
+        var modules = new ArrayList<ModuleIdentity>();
+        for (var file : files) {
+            modules.addAll(inspect(file));
+        }
+        return modules;
+    }
+
+    static List<ModuleIdentity> inspect(File file) {
+        try {
+            var modules = new ArrayList<ModuleIdentity>();
+            for (var module : modules(file.toPath())) {
+                modules.add(readModule(module).identity());
+            }
+            return modules;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read module from " + file, e);
+        }
+    }
+
+    static List<ModulePackages> inspectPackages(File file) {
+        try {
+            var modules = new ArrayList<ModulePackages>();
+            for (var module : modules(file.toPath())) {
+                var descriptor = readModule(module);
+                modules.add(new ModulePackages(descriptor.identity(), module.getFileName().toString(), descriptor.derivedName(), descriptor.requires(), readPackages(module)));
+            }
+            return modules;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read module from " + file, e);
+        }
+    }
+
+    private static List<Path> modules(Path path) throws IOException {
+        if (Files.isDirectory(path) && !isModule(path)) {
+            // a directory that is not itself a module is a directory of modules
+            try (Stream<Path> children = Files.list(path)) {
+                return children.sorted().filter(ModuleInspector::isModule).toList();
+            }
+        }
+        return isModule(path) ? List.of(path) : List.of();
+    }
+
+    private static boolean isModule(Path path) {
+        if (Files.isDirectory(path)) {
+            return Files.isRegularFile(path.resolve(MODULE_INFO));
+        }
+        return Files.isRegularFile(path) && path.getFileName().toString().endsWith(".jar");
+    }
+
+    private static Descriptor readModule(Path path) throws IOException {
+        return Files.isDirectory(path) ? readExploded(path) : readJar(path);
+    }
+
+    private static Set<String> readPackages(Path path) throws IOException {
+        var packages = new TreeSet<String>();
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                for (var file : files.filter(Files::isRegularFile).toList()) {
+                    addPackage(packages, path.relativize(file).toString().replace(File.separatorChar, '/'));
+                }
+            }
+        } else {
+            try (var jar = new JarFile(path.toFile(), false, ZipFile.OPEN_READ, LATEST_RELEASE)) {
+                // versioned entries are seen under their unversioned names
+                jar.versionedStream().forEach(entry -> addPackage(packages, entry.getName()));
+            }
+        }
+        return packages;
+    }
+
+    private static void addPackage(Set<String> packages, String entry) {
+        var index = entry.lastIndexOf('/');
+        if (!entry.endsWith(".class") || index == -1 || entry.startsWith("META-INF/")) {
+            return;
+        }
+        packages.add(entry.substring(0, index).replace('/', '.'));
+    }
+
+    private static Descriptor readExploded(Path path) throws IOException {
+        try (var in = Files.newInputStream(path.resolve(MODULE_INFO))) {
+            return readDescriptor(in, path);
+        }
+    }
+
+    private static Descriptor readJar(Path path) throws IOException {
+        // signatures are not verified; only the descriptor and the manifest are read, never the signer files
+        try (var jar = new JarFile(path.toFile(), false, ZipFile.OPEN_READ, LATEST_RELEASE)) {
+            var entry = jar.getJarEntry(MODULE_INFO);
+            if (entry != null) {
+                try (var in = jar.getInputStream(entry)) {
+                    return readDescriptor(in, path);
+                }
+            }
+            var manifest = jar.getManifest();
+            String name = manifest == null ? null : manifest.getMainAttributes().getValue(AUTOMATIC_MODULE_NAME);
+            var derived = name == null;
+            if (derived) {
+                name = deriveModuleName(path.getFileName().toString());
+            }
+            try {
+                ModuleDescriptor.newAutomaticModule(name);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unable to derive module name for " + path + ": " + e.getMessage(), e);
+            }
+            return new Descriptor(new ModuleIdentity(name, ModuleIdentity.Kind.AUTOMATIC), derived, List.of());
+        }
+    }
+
+    private static Descriptor readDescriptor(InputStream in, Path path) throws IOException {
+        try {
+            var descriptor = ModuleDescriptor.read(in);
+            var requires = descriptor.requires().stream()
+                .filter(r -> !r.modifiers().contains(ModuleDescriptor.Requires.Modifier.STATIC))
+                .map(ModuleDescriptor.Requires::name)
+                .sorted()
+                .toList();
+            return new Descriptor(new ModuleIdentity(descriptor.name(), ModuleIdentity.Kind.EXPLICIT), false, requires);
+        } catch (InvalidModuleDescriptorException e) {
+            throw new IllegalArgumentException("Invalid module descriptor in " + path, e);
+        }
+    }
+
+    static String deriveModuleName(String fileName) {
+        var name = fileName.substring(0, fileName.length() - ".jar".length());
+        var matcher = DASH_VERSION.matcher(name);
+        if (matcher.find()) {
+            name = name.substring(0, matcher.start());
+        }
+        name = NON_ALPHANUM.matcher(name).replaceAll(".");
+        name = REPEATING_DOTS.matcher(name).replaceAll(".");
+        name = LEADING_DOTS.matcher(name).replaceAll("");
+        return TRAILING_DOTS.matcher(name).replaceAll("");
+    }
+}
@@ -0,0 +1,60 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// the contents of a module: besides its packages, what is needed to check the module graph it is part of
+record ModulePackages(ModuleIdentity module, String artifact, boolean derivedName, List<String> requires, Set<String> packages) {
+    static final String ARTIFACT_TYPE = "module-packages";
+
+    static List<ModulePackages> read(Path descriptor) throws IOException {
+        return Files.readAllLines(descriptor, StandardCharsets.UTF_8).stream()
+            .filter(s -> !s.isBlank())
+            .map(ModulePackages::of)
+            .toList();
+    }
+
+    static void write(Path descriptor, List<ModulePackages> modules) throws IOException {
+        var builder = new StringBuilder();
+        for (var module : modules) {
+            builder.append(module.module().asLine());
+            builder.append("\tartifact ").append(module.artifact());
+            if (module.derivedName()) {
+                builder.append("\tderived");
+            }
+            for (var requires : module.requires()) {
+                builder.append("\trequires ").append(requires);
+            }
+            for (var pkg : module.packages()) {
+                builder.append("\tpackage ").append(pkg);
+            }
+            builder.append('\n');
+        }
+        Files.writeString(descriptor, builder.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static ModulePackages of(String line) {
+        var parts = line.split("\t");
+        var artifact = "";
+        var derived = false;
+        var requires = new ArrayList<String>();
+        var packages = new TreeSet<String>();
+        for (int i = 1; i < parts.length; i++) {
+            var field = parts[i].split(" ", 2);
+            switch (field[0]) {
+                case "artifact" -> artifact = field[1];
+                case "derived" -> derived = true;
+                case "requires" -> requires.add(field[1]);
+                case "package" -> packages.add(field[1]);
+                default -> throw new IllegalArgumentException("Invalid module packages line: " + line);
+            }
+        }
+        return new ModulePackages(ModuleIdentity.of(parts[0]), artifact, derived, List.copyOf(requires), packages);
+    }
+}
@@ -0,0 +1,44 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+@CacheableTransform
+public abstract class ModulePackagesTransform implements TransformAction<TransformParameters.None> {
+    @Inject
+    public ModulePackagesTransform() {}
+
+    // the file name matters, as automatic module names may be derived from it
+    @InputArtifact
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract Provider<FileSystemLocation> getInputArtifact();
+
+    @Override
+    public void transform(TransformOutputs outputs) {
+        var input = getInputArtifact().get().getAsFile();
+        var event = new ModuleInspectionEvent();
+        event.begin();
+        var modules = ModuleInspector.inspectPackages(input);
+        event.artifact = input.getName();
+        event.modules = modules.size();
+        event.commit();
+        // the descriptor name is fixed so that consumers only ever see the module contents, not the artifact they came from
+        var descriptor = outputs.file(ModulePackages.ARTIFACT_TYPE);
+        try {
+            ModulePackages.write(descriptor.toPath(), modules);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.tasks.CompileClasspath;
+import org.gradle.process.CommandLineArgumentProvider;
+
+import javax.inject.Inject;
+import java.util.List;
+
+// javac run in process does not read argument files, and forked javac gets one from Gradle anyway
+public abstract class ModulePathArgumentProvider implements CommandLineArgumentProvider {
+    @Inject
+    public ModulePathArgumentProvider() {}
+
+    @CompileClasspath
+    public abstract ConfigurableFileCollection getModulePath();
+
+    @Override
+    public Iterable<String> asArguments() {
+        if (getModulePath().isEmpty()) {
+            return List.of();
+        }
+        return List.of("--module-path", ArgumentFiles.path(getModulePath()));
+    }
+}
@@ -0,0 +1,142 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ExternalDependency;
+import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.component.ProjectComponentSelector;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class ModuleScopes {
+    enum Scope {
+        API,
+        COMPILE,
+        RUNTIME
+    }
+
+    private final Map<ComponentIdentifier, Set<Scope>> scopes;
+    private final Map<ComponentIdentifier, String> publishedNames;
+
+    private ModuleScopes(Map<ComponentIdentifier, Set<Scope>> scopes, Map<ComponentIdentifier, String> publishedNames) {
+        this.scopes = scopes;
+        this.publishedNames = publishedNames;
+    }
+
+    static Set<String> keys(Iterable<Dependency> dependencies) {
+        var keys = new HashSet<String>();
+        for (var dependency : dependencies) {
+            if (dependency instanceof ProjectDependency project) {
+                keys.add("project " + project.getPath());
+            } else if (dependency instanceof ExternalDependency) {
+                // selectors report a missing group as empty
+                var group = dependency.getGroup() == null ? "" : dependency.getGroup();
+                keys.add(group + ":" + dependency.getName());
+            }
+        }
+        return keys;
+    }
+
+    private static @Nullable String key(ComponentSelector selector) {
+        if (selector instanceof ProjectComponentSelector project) {
+            return "project " + project.getProjectPath();
+        } else if (selector instanceof ModuleComponentSelector module) {
+            return module.getGroup() + ":" + module.getModule();
+        }
+        return null;
+    }
+
+    // each component is tagged with the scopes of every declared dependency it is reached from
+    static ModuleScopes of(ResolvedComponentResult root, Map<Scope, Set<String>> declared, ModuleIndex index) {
+        var scopes = new HashMap<ComponentIdentifier, Set<Scope>>();
+        var publishedNames = new HashMap<ComponentIdentifier, String>();
+        var queue = new ArrayDeque<ResolvedComponentResult>();
+        for (var dependency : root.getDependencies()) {
+            if (!(dependency instanceof ResolvedDependencyResult resolved)) {
+                continue;
+            }
+            var key = key(dependency.getRequested());
+            var component = resolved.getSelected();
+            var tags = scopes.computeIfAbsent(component.getId(), id -> EnumSet.noneOf(Scope.class));
+            for (var entry : declared.entrySet()) {
+                if (key != null && entry.getValue().contains(key)) {
+                    tags.add(entry.getKey());
+                }
+            }
+            queue.add(component);
+        }
+        while (!queue.isEmpty()) {
+            var component = queue.poll();
+            var tags = scopes.get(component.getId());
+            var name = publishedName(component);
+            if (name == null) {
+                // only the graph is needed to find a component in the index, so its artifacts are never downloaded
+                var indexed = index.find(component.getId());
+                name = indexed == null ? null : indexed.name();
+            }
+            if (name != null) {
+                publishedNames.put(component.getId(), name);
+            }
+            for (var dependency : component.getDependencies()) {
+                if (!(dependency instanceof ResolvedDependencyResult resolved)) {
+                    continue;
+                }
+                var selected = resolved.getSelected();
+                var selectedTags = scopes.computeIfAbsent(selected.getId(), id -> EnumSet.noneOf(Scope.class));
+                if (selectedTags.addAll(tags)) {
+                    queue.add(selected);
+                }
+            }
+        }
+        return new ModuleScopes(scopes, publishedNames);
+    }
+
+    private static @Nullable String publishedName(ResolvedComponentResult component) {
+        for (var variant : component.getVariants()) {
+            var name = variant.getAttributes().getAttribute(ExtendedJavaConventionsAttributes.MODULE_NAME);
+            if (name != null) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    // whether the artifacts of a component must be inspected for the module identities of a scope
+    boolean inspects(ComponentIdentifier id, Scope scope) {
+        return !publishedNames.containsKey(id) && includes(id, scope);
+    }
+
+    // whether the artifacts of a component must be inspected for any scope
+    boolean inspects(ComponentIdentifier id) {
+        return EnumSet.allOf(Scope.class).stream().anyMatch(scope -> inspects(id, scope));
+    }
+
+    // names of modules in a scope known from the variant metadata of their producer or from the module index
+    List<String> publishedModules(Scope scope) {
+        return publishedNames.entrySet().stream()
+            .filter(e -> includes(e.getKey(), scope))
+            .map(Map.Entry::getValue)
+            .sorted()
+            .toList();
+    }
+
+    private boolean includes(ComponentIdentifier id, Scope scope) {
+        var tags = scopes.get(id);
+        if (tags == null) {
+            // file dependencies are not part of the graph; treat them like implementation dependencies
+            return scope != Scope.API;
+        }
+        return tags.contains(scope);
+    }
+}
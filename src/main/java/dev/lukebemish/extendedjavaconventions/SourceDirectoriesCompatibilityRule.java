@@ -0,0 +1,22 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.attributes.AttributeCompatibilityRule;
+import org.gradle.api.attributes.CompatibilityCheckDetails;
+import org.gradle.api.attributes.LibraryElements;
+
+import javax.inject.Inject;
+
+public abstract class SourceDirectoriesCompatibilityRule implements AttributeCompatibilityRule<LibraryElements> {
+    @Inject
+    public SourceDirectoriesCompatibilityRule() {}
+
+    @Override
+    public void execute(CompatibilityCheckDetails<LibraryElements> details) {
+        var consumer = details.getConsumerValue();
+        var producer = details.getProducerValue();
+        // anything without source directories, like external dependencies, is compiled against as a jar
+        if (consumer != null && producer != null && consumer.getName().equals("source-directories") && producer.getName().equals(LibraryElements.JAR)) {
+            details.compatible();
+        }
+    }
+}
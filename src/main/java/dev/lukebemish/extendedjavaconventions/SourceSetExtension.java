@@ -1,6 +1,7 @@
 package dev.lukebemish.extendedjavaconventions;
 
 import org.gradle.api.Action;
+import org.gradle.api.Task;
 import org.gradle.api.tasks.SourceSet;
 
 import javax.inject.Inject;
@@ -19,7 +20,19 @@ public void local() {
         extendedJavaConventions.local(owner);
     }
 
+    public void sourcepath() {
+        extendedJavaConventions.sourcepath(owner);
+    }
+
     public void generateModuleInfo(Action<ModuleInfoSpec> action) {
         extendedJavaConventions.generateModuleInfo(owner, action);
     }
+
+    public void feature(Action<? super FeatureUtils.Context> action) {
+        extendedJavaConventions.feature(owner, action);
+    }
+
+    public void trimModulePath(Task task) {
+        extendedJavaConventions.trimModulePath(owner, task);
+    }
 }
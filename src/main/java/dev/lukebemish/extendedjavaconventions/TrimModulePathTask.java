@@ -0,0 +1,190 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.module.FindException;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ModuleFinder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public abstract class TrimModulePathTask extends DefaultTask {
+    @Classpath
+    public abstract ConfigurableFileCollection getModulePath();
+
+    @Input
+    public abstract ListProperty<String> getRootModules();
+
+    // entries whose modules are all roots, like those a test task adds to the module path of the code it tests
+    @Classpath
+    public abstract ConfigurableFileCollection getRootModulePath();
+
+    // for a test task given the module path of the module it tests apart from its classpath, the entries of that module
+    // path; the argument file then holds only the reachable ones among them, all added to the root modules as the test
+    // worker would
+    @Classpath
+    public abstract ConfigurableFileCollection getTestModulePath();
+
+    // JVM arguments putting only the modules reachable from the roots on the module path
+    @OutputFile
+    public abstract RegularFileProperty getArgumentFile();
+
+    // module path entries that are not reachable from the roots, one per line
+    @OutputFile
+    public abstract RegularFileProperty getUnreachableFile();
+
+    @Inject
+    public TrimModulePathTask() {}
+
+    static List<File> readUnreachable(File file) {
+        try {
+            return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).stream()
+                .filter(s -> !s.isBlank())
+                .map(File::new)
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void addProviders(Map<String, List<String>> providers, ModuleDescriptor descriptor) {
+        for (var provides : descriptor.provides()) {
+            providers.computeIfAbsent(provides.service(), k -> new ArrayList<>()).add(descriptor.name());
+        }
+    }
+
+    @TaskAction
+    public void run() throws IOException {
+        var paths = new ArrayList<Path>();
+        // a module path may have tens of thousands of entries, so membership is checked with a set
+        var modules = new LinkedHashSet<Path>();
+        for (var file : getModulePath()) {
+            var path = file.toPath();
+            if (!Files.exists(path)) {
+                continue;
+            }
+            paths.add(path);
+            try {
+                // a directory of plain classes holds no module, and stays on the path like any other non-module entry
+                if (!ModuleFinder.of(path).findAll().isEmpty()) {
+                    modules.add(path);
+                }
+            } catch (FindException e) {
+                // the JVM would reject this entry itself; it is kept so that it fails there rather than silently vanishing
+            }
+        }
+
+        var finder = ModuleFinder.of(modules.toArray(Path[]::new));
+        var system = ModuleFinder.ofSystem();
+        var references = finder.findAll();
+        var providers = new HashMap<String, List<String>>();
+        for (var reference : system.findAll()) {
+            addProviders(providers, reference.descriptor());
+        }
+        for (var reference : references) {
+            // modules of the JDK take precedence over those on the path, so a path module of the same name provides nothing
+            if (system.find(reference.descriptor().name()).isEmpty()) {
+                addProviders(providers, reference.descriptor());
+            }
+        }
+
+        // Resolving a configuration links every automatic module to every other resolved module, which does not fit
+        // in memory for a module path with thousands of automatic modules; reachability only needs the descriptors
+        var reachable = new HashSet<Path>();
+        var visited = new HashSet<String>();
+        var bound = new HashSet<String>();
+        var queue = new ArrayDeque<>(getRootModules().get());
+        for (var file : getRootModulePath()) {
+            if (modules.contains(file.toPath())) {
+                ModuleFinder.of(file.toPath()).findAll().forEach(r -> queue.add(r.descriptor().name()));
+            }
+        }
+        // every module reads java.base, whose services are bound like those of any other resolved module
+        queue.add("java.base");
+        var automaticResolved = false;
+        while (!queue.isEmpty()) {
+            var name = queue.poll();
+            if (!visited.add(name)) {
+                continue;
+            }
+            var found = system.find(name).or(() -> finder.find(name));
+            if (found.isEmpty()) {
+                // the JVM reports missing modules itself
+                continue;
+            }
+            var reference = found.get();
+            var descriptor = reference.descriptor();
+            if (system.find(name).isEmpty()) {
+                reference.location().ifPresent(location -> reachable.add(Path.of(location)));
+            }
+            if (descriptor.isAutomatic()) {
+                // as soon as one automatic module is resolved, so are all the others
+                if (!automaticResolved) {
+                    automaticResolved = true;
+                    references.stream()
+                        .filter(r -> r.descriptor().isAutomatic())
+                        .forEach(r -> queue.add(r.descriptor().name()));
+                }
+                continue;
+            }
+            for (var requires : descriptor.requires()) {
+                if (!requires.modifiers().contains(ModuleDescriptor.Requires.Modifier.STATIC)) {
+                    queue.add(requires.name());
+                }
+            }
+            // providers of services used by any resolved module are bound, as Configuration.resolveAndBind does for the
+            // boot layer; this includes services of the JDK, like JDBC drivers, file systems or logger finders
+            for (var service : descriptor.uses()) {
+                if (bound.add(service)) {
+                    queue.addAll(providers.getOrDefault(service, List.of()));
+                }
+            }
+        }
+
+        // order is kept, as the first of several modules with the same name wins
+        var kept = new ArrayList<Path>();
+        var unreachable = new ArrayList<Path>();
+        for (var path : paths) {
+            if (reachable.contains(path) || !modules.contains(path)) {
+                kept.add(path);
+            } else {
+                unreachable.add(path);
+            }
+        }
+
+        var testModulePath = getTestModulePath().getFiles().stream().map(File::toPath).collect(Collectors.toSet());
+        if (testModulePath.isEmpty()) {
+            var modulePath = ArgumentFiles.path(kept.stream().map(Path::toFile).toList());
+            ArgumentFiles.write(getArgumentFile().get().getAsFile().toPath(), List.of("--module-path", modulePath, "--add-modules", String.join(",", getRootModules().get())));
+        } else {
+            var modulePath = ArgumentFiles.path(kept.stream().filter(testModulePath::contains).map(Path::toFile).toList());
+            ArgumentFiles.write(getArgumentFile().get().getAsFile().toPath(), List.of("--module-path", modulePath, "--add-modules", "ALL-MODULE-PATH"));
+        }
+
+        var unreachableFile = getUnreachableFile().get().getAsFile().toPath();
+        Files.createDirectories(unreachableFile.getParent());
+        Files.writeString(unreachableFile, unreachable.stream()
+            .map(p -> p.toAbsolutePath() + "\n")
+            .collect(Collectors.joining()), StandardCharsets.UTF_8);
+    }
+}
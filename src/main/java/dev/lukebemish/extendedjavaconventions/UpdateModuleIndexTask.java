@@ -0,0 +1,53 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.UntrackedTask;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+@UntrackedTask(because = "Learned entries are merged into a module index shared by every project of the build")
+public abstract class UpdateModuleIndexTask extends DefaultTask {
+    // module identity descriptors of the components that were not found in the index
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getIdentityFiles();
+
+    // the coordinates of the component of each of the descriptors, followed by its path
+    @Internal
+    public abstract ListProperty<String> getIdentities();
+
+    @Internal
+    public abstract Property<ModuleIndexService> getIndexService();
+
+    @Inject
+    public UpdateModuleIndexTask() {}
+
+    @TaskAction
+    public void run() throws IOException {
+        var byComponent = new HashMap<String, List<ModuleIdentity>>();
+        for (var line : getIdentities().get()) {
+            var parts = line.split(" ", 2);
+            byComponent.computeIfAbsent(parts[0], k -> new ArrayList<>()).addAll(ModuleIdentity.read(Path.of(parts[1])));
+        }
+        var service = getIndexService().get();
+        byComponent.forEach((coordinates, modules) -> {
+            // a component with several modules among its artifacts has no single name to record
+            if (modules.size() == 1) {
+                service.learn(coordinates, modules.get(0));
+            }
+        });
+    }
+}
@@ -0,0 +1,312 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaCompiler;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.lang.module.ModuleDescriptor;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@CacheableTask
+public abstract class ValidateModuleGraphTask extends DefaultTask {
+    private static final Pattern MODULE_LINE = Pattern.compile("^\\s*(?:open\\s+)?module\\s+([\\w.]+)\\s*\\{");
+    private static final Pattern REQUIRES_LINE = Pattern.compile("^\\s*requires\\s+(static\\s+)?(?:transitive\\s+)?([\\w.]+)\\s*;");
+
+    // the generated module-info.java or module-info.class
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getModuleInfo();
+
+    // the sources of the module, whose directories are its packages
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getSources();
+
+    // the contents of each module on the compile and runtime classpaths
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getCompileModules();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getRuntimeModules();
+
+    // provides the system modules the module is compiled and run against
+    @Nested
+    public abstract Property<JavaCompiler> getJavaCompiler();
+
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    @Inject
+    public ValidateModuleGraphTask() {}
+
+    private record Problem(String severity, String kind, String scope, String message) {
+        String toJson() {
+            return "{\"severity\": " + quote(severity) + ", \"kind\": " + quote(kind) + ", \"scope\": " + quote(scope) + ", \"message\": " + quote(message) + "}";
+        }
+    }
+
+    record Root(String name, Map<String, Boolean> requires) {}
+
+    @TaskAction
+    public void run() throws IOException {
+        var root = readRoot(getModuleInfo());
+        var packages = sourcePackages(getSources());
+        var system = systemModules(getJavaCompiler().get().getMetadata().getInstallationPath().getAsFile().toPath());
+        var problems = new ArrayList<Problem>();
+
+        var compileModules = readModules(getCompileModules(), root, "compile", problems);
+        for (var entry : root.requires().entrySet()) {
+            var name = entry.getKey();
+            if (!compileModules.containsKey(name) && !system.containsKey(name)) {
+                problems.add(new Problem("error", "missing-module", "compile", root.name() + " requires " + name + ", which is not on the compile classpath"));
+            }
+        }
+
+        var runtimeModules = readModules(getRuntimeModules(), root, "runtime", problems);
+        validateRuntime(root, packages, runtimeModules, system, problems);
+
+        var reportFile = getReportFile().get().getAsFile().toPath();
+        Files.createDirectories(reportFile.getParent());
+        var json = problems.isEmpty() ? "[]" : problems.stream()
+            .map(p -> "    " + p.toJson())
+            .collect(Collectors.joining(",\n", "[\n", "\n  ]"));
+        Files.writeString(reportFile, "{\n  \"module\": " + quote(root.name()) + ",\n  \"problems\": " + json + "\n}\n", StandardCharsets.UTF_8);
+
+        for (var problem : problems) {
+            if (problem.severity().equals("warning")) {
+                getLogger().warn("Warning: {}", problem.message());
+            }
+        }
+        var errors = problems.stream().filter(p -> p.severity().equals("error")).map(Problem::message).toList();
+        if (!errors.isEmpty()) {
+            throw new GradleException("Module graph of " + root.name() + " is invalid:\n - " + String.join("\n - ", errors) + "\nSee the report at " + reportFile.toUri());
+        }
+    }
+
+    static Root readRoot(FileCollection moduleInfo) throws IOException {
+        for (var file : moduleInfo.getAsFileTree()) {
+            if (file.getName().equals("module-info.class")) {
+                try (var in = Files.newInputStream(file.toPath())) {
+                    var descriptor = ModuleDescriptor.read(in);
+                    var requires = new TreeMap<String, Boolean>();
+                    for (var r : descriptor.requires()) {
+                        requires.put(r.name(), r.modifiers().contains(ModuleDescriptor.Requires.Modifier.STATIC));
+                    }
+                    return new Root(descriptor.name(), requires);
+                }
+            } else if (file.getName().equals("module-info.java")) {
+                // generated by this plugin, so every directive sits on a line of its own
+                String name = null;
+                var requires = new TreeMap<String, Boolean>();
+                for (var line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                    var module = MODULE_LINE.matcher(line);
+                    var required = REQUIRES_LINE.matcher(line);
+                    if (module.find()) {
+                        name = module.group(1);
+                    } else if (required.find()) {
+                        requires.put(required.group(2), required.group(1) != null);
+                    }
+                }
+                if (name != null) {
+                    return new Root(name, requires);
+                }
+            }
+        }
+        throw new GradleException("No generated module descriptor found in " + moduleInfo.getFiles());
+    }
+
+    static Set<String> sourcePackages(FileCollection sources) {
+        var packages = new TreeSet<String>();
+        sources.getAsFileTree().visit((FileVisitDetails details) -> {
+            var segments = details.getRelativePath().getSegments();
+            if (!details.isDirectory() && details.getName().endsWith(".java") && !details.getName().equals("module-info.java") && segments.length > 1) {
+                packages.add(String.join(".", List.of(segments).subList(0, segments.length - 1)));
+            }
+        });
+        return packages;
+    }
+
+    // the first module of a name wins, as it would on a module path
+    private static Map<String, ModulePackages> readModules(FileCollection descriptors, Root root, String scope, List<Problem> problems) throws IOException {
+        var modules = new LinkedHashMap<String, ModulePackages>();
+        var duplicates = new TreeMap<String, List<String>>();
+        for (var descriptor : descriptors) {
+            for (var module : ModulePackages.read(descriptor.toPath())) {
+                var name = module.module().name();
+                var existing = modules.putIfAbsent(name, module);
+                if (name.equals(root.name())) {
+                    duplicates.computeIfAbsent(name, k -> new ArrayList<>(List.of("the module itself"))).add(module.artifact());
+                } else if (existing != null) {
+                    duplicates.computeIfAbsent(name, k -> new ArrayList<>(List.of(existing.artifact()))).add(module.artifact());
+                }
+            }
+        }
+        for (var entry : duplicates.entrySet()) {
+            problems.add(new Problem("error", "duplicate-module", scope, "Module " + entry.getKey() + " is provided by more than one entry: " + String.join(", ", entry.getValue())));
+        }
+        modules.remove(root.name());
+        return modules;
+    }
+
+    private static void validateRuntime(Root root, Set<String> rootPackages, Map<String, ModulePackages> modules, Map<String, ModuleDescriptor> system, List<Problem> problems) {
+        // the modules resolved from the root, with the packages they contain and the system modules they read
+        var contents = new TreeMap<String, Set<String>>();
+        var reads = new HashMap<String, Set<String>>();
+        var resolvedSystem = new HashSet<String>();
+        contents.put(root.name(), rootPackages);
+        reads.put(root.name(), new HashSet<>());
+
+        // java.base is always resolved, though a generated module-info.java leaves it implicit
+        var queue = new ArrayDeque<String>(List.of("java.base"));
+        root.requires().forEach((name, isStatic) -> {
+            if (!isStatic) {
+                queue.add(name);
+                reads.get(root.name()).add(name);
+            }
+        });
+        var visited = new HashSet<String>();
+        var automaticResolved = false;
+        var derived = new TreeSet<String>();
+        while (!queue.isEmpty()) {
+            var name = queue.poll();
+            if (!visited.add(name)) {
+                continue;
+            }
+            var systemModule = system.get(name);
+            if (systemModule != null) {
+                resolvedSystem.add(name);
+                systemModule.requires().stream()
+                    .filter(r -> !r.modifiers().contains(ModuleDescriptor.Requires.Modifier.STATIC))
+                    .forEach(r -> queue.add(r.name()));
+                continue;
+            }
+            var module = modules.get(name);
+            if (module == null) {
+                var requiredBy = reads.entrySet().stream()
+                    .filter(e -> e.getValue().contains(name))
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+                problems.add(new Problem("error", "missing-module", "runtime", "Module " + name + ", required by " + requiredBy + ", is not on the runtime classpath"));
+                continue;
+            }
+            contents.put(name, module.packages());
+            reads.put(name, new HashSet<>(module.requires()));
+            if (module.module().kind() == ModuleIdentity.Kind.AUTOMATIC) {
+                if (module.derivedName()) {
+                    derived.add(name + " (" + module.artifact() + ")");
+                }
+                // as soon as one automatic module is resolved, so are all the others
+                if (!automaticResolved) {
+                    automaticResolved = true;
+                    modules.values().stream()
+                        .filter(m -> m.module().kind() == ModuleIdentity.Kind.AUTOMATIC)
+                        .forEach(m -> queue.add(m.module().name()));
+                }
+                continue;
+            }
+            queue.addAll(module.requires());
+        }
+
+        // modules on the module path share a class loader, so no two of them may contain the same package
+        var owners = new TreeMap<String, Set<String>>();
+        contents.forEach((name, packages) -> packages.forEach(pkg -> owners.computeIfAbsent(pkg, k -> new TreeSet<>()).add(name)));
+        owners.forEach((pkg, names) -> {
+            if (names.size() > 1) {
+                problems.add(new Problem("error", "split-package", "runtime", "Package " + pkg + " is in more than one module: " + String.join(", ", names)));
+            }
+        });
+
+        // nor may they contain a package of a system module they read
+        var systemOwners = new HashMap<String, String>();
+        for (var name : resolvedSystem) {
+            system.get(name).packages().forEach(pkg -> systemOwners.put(pkg, name));
+        }
+        contents.forEach((name, packages) -> {
+            var automatic = !name.equals(root.name()) && modules.get(name).module().kind() == ModuleIdentity.Kind.AUTOMATIC;
+            for (var pkg : packages) {
+                var owner = systemOwners.get(pkg);
+                if (owner != null && (automatic || owner.equals("java.base") || reads.get(name).contains(owner))) {
+                    problems.add(new Problem("error", "split-package", "runtime", "Package " + pkg + " is in module " + name + " and in system module " + owner));
+                }
+            }
+        });
+
+        for (var name : derived) {
+            problems.add(new Problem("warning", "derived-automatic-name", "runtime", "Automatic module " + name + " has a name derived from its file name, which changes if the file is renamed"));
+        }
+    }
+
+    // read through the toolchain's own runtime image, as the JDK running the build may have different modules
+    private static Map<String, ModuleDescriptor> systemModules(Path javaHome) throws IOException {
+        var modules = new HashMap<String, ModuleDescriptor>();
+        try (var fileSystem = FileSystems.newFileSystem(URI.create("jrt:/"), Map.of("java.home", javaHome.toString()));
+             Stream<Path> directories = Files.list(fileSystem.getPath("/modules"))) {
+            for (var directory : directories.toList()) {
+                var descriptor = directory.resolve("module-info.class");
+                if (Files.isRegularFile(descriptor)) {
+                    try (var in = Files.newInputStream(descriptor)) {
+                        var module = ModuleDescriptor.read(in);
+                        modules.put(module.name(), module);
+                    }
+                }
+            }
+        }
+        return modules;
+    }
+
+    // messages carry file names, which may hold any character
+    static String quote(String value) {
+        var builder = new StringBuilder("\"");
+        for (var c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,115 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the same layout as the test/ sample, without its external dependencies so that it builds offline
+class ConfigurationCacheTest extends TestKitFixture {
+    private void testModule(String... includes) throws IOException {
+        settings(includes);
+        write("gradle.properties", """
+            dev.lukebemish.extended-java-conventions.sourcepath=true
+            dev.lukebemish.extended-java-conventions.local=true
+            """);
+        write("build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.testmodule"
+                    exports "test.testmodule"
+                    requires "java.base"
+                }
+            }
+            """);
+        write("src/main/java/test/testmodule/Test.java", """
+            package test.testmodule;
+
+            public class Test {
+                public static void main(String[] args) {}
+            }
+            """);
+    }
+
+    private void otherModule() throws IOException {
+        write("othermodule/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.othermodule"
+                }
+            }
+
+            dependencies {
+                implementation(project(":"))
+            }
+            """);
+        write("othermodule/src/main/java/test/othermodule/Other.java", """
+            package test.othermodule;
+
+            import test.testmodule.Test;
+
+            public class Other {
+                public static void main(String[] args) {
+                    Test.main(args);
+                }
+            }
+            """);
+    }
+
+    private BuildResult cachedBuild(String... arguments) {
+        var allArguments = new ArrayList<>(List.of(arguments));
+        allArguments.add("--configuration-cache");
+        return build(allArguments.toArray(String[]::new));
+    }
+
+    private static void assertRan(BuildResult result, String task) {
+        var outcome = result.task(task);
+        assertNotNull(outcome, task + " did not run");
+        assertTrue(outcome.getOutcome() == TaskOutcome.SUCCESS || outcome.getOutcome() == TaskOutcome.UP_TO_DATE, task + " was " + outcome.getOutcome());
+    }
+
+    @Test
+    void reusesConfigurationCache() throws IOException {
+        testModule();
+
+        var first = cachedBuild("compileJava", "test");
+        assertTrue(first.getOutput().contains("Configuration cache entry stored."), first.getOutput());
+        assertRan(first, ":generateModuleInfo");
+        assertRan(first, ":compileJava");
+
+        var second = cachedBuild("compileJava", "test");
+        assertTrue(second.getOutput().contains("Reusing configuration cache."), second.getOutput());
+        assertEquals(TaskOutcome.UP_TO_DATE, second.task(":compileJava").getOutcome());
+    }
+
+    @Test
+    void reusesConfigurationCacheWithIsolatedProjects() throws IOException {
+        testModule("othermodule");
+        otherModule();
+
+        var first = cachedBuild(":othermodule:compileJava", ":othermodule:test", "-Dorg.gradle.unsafe.isolated-projects=true");
+        assertTrue(first.getOutput().contains("Configuration cache entry stored."), first.getOutput());
+        assertRan(first, ":generateModuleInfo");
+        assertRan(first, ":othermodule:generateModuleInfo");
+        assertRan(first, ":othermodule:compileJava");
+
+        var second = cachedBuild(":othermodule:compileJava", ":othermodule:test", "-Dorg.gradle.unsafe.isolated-projects=true");
+        assertTrue(second.getOutput().contains("Reusing configuration cache."), second.getOutput());
+        assertEquals(TaskOutcome.UP_TO_DATE, second.task(":othermodule:compileJava").getOutcome());
+    }
+}
@@ -0,0 +1,116 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeatureTest extends TestKitFixture {
+    private void library(String features) throws IOException {
+        settings();
+        write("build.gradle", """
+            plugins {
+                id 'java-library'
+                id 'maven-publish'
+            }
+
+            group = 'com.example'
+            version = '1.0'
+
+            sourceSets {
+                extra
+            }
+
+            %s
+
+            publishing {
+                publications {
+                    maven(MavenPublication) {
+                        from components.java
+                    }
+                }
+            }
+            """.formatted(features));
+    }
+
+    // the published variants, as Gradle module metadata, with all whitespace dropped so that it reads on one line
+    private String publishedMetadata() throws IOException {
+        build("generateMetadataFileForMavenPublication");
+        return read("build/publications/maven/module.json").replaceAll("\\s", "");
+    }
+
+    // the object of a variant, up to its matching brace
+    private static String variant(String metadata, String name) {
+        var start = metadata.indexOf("{\"name\":\"" + name + "\"");
+        assertTrue(start >= 0, metadata);
+        var depth = 0;
+        for (int i = start; i < metadata.length(); i++) {
+            var c = metadata.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return metadata.substring(start, i + 1);
+            }
+        }
+        return metadata.substring(start);
+    }
+
+    @Test
+    void publishesVariantsWithTheCapabilitiesOfTheFeature() throws IOException {
+        write("docs.txt", "extra docs");
+        library("""
+            java {
+                registerFeature('extra') {
+                    usingSourceSet(sourceSets.extra)
+                }
+            }
+
+            extendedJavaConventions.feature(sourceSets.extra) {
+                variant('docs') {
+                    attributes {
+                        attribute(Category.CATEGORY_ATTRIBUTE, objects.named(Category, Category.DOCUMENTATION))
+                        attribute(DocsType.DOCS_TYPE_ATTRIBUTE, objects.named(DocsType, 'extra-docs'))
+                    }
+                    outgoing.artifact(file('docs.txt'))
+                }
+            }
+            """);
+
+        var docs = variant(publishedMetadata(), "extraDocsElements");
+        assertTrue(docs.contains("\"org.gradle.docstype\":\"extra-docs\""), docs);
+        assertTrue(docs.contains("\"capabilities\":[{\"group\":\"com.example\",\"name\":\"test-extra\",\"version\":\"1.0\"}]"), docs);
+        assertTrue(docs.contains("\"url\":\"test-1.0.txt\""), docs);
+    }
+
+    @Test
+    void modifiesOutgoingVariantsRegisteredLater() throws IOException {
+        library("""
+            // called before the feature is registered, and so before any of its configurations exist
+            extendedJavaConventions.feature(sourceSets.extra) {
+                modifyOutgoing {
+                    capability('com.example:first:1.0')
+                }
+            }
+            sourceSets.extra.extendedJavaConventions.feature {
+                modifyOutgoing {
+                    capability('com.example:second:1.0')
+                }
+            }
+
+            java {
+                registerFeature('extra') {
+                    usingSourceSet(sourceSets.extra)
+                    withSourcesJar()
+                }
+            }
+            """);
+
+        var metadata = publishedMetadata();
+        for (var name : new String[] {"extraApiElements", "extraRuntimeElements", "extraSourcesElements"}) {
+            var variant = variant(metadata, name);
+            assertTrue(variant.contains("{\"group\":\"com.example\",\"name\":\"first\",\"version\":\"1.0\"}"), variant);
+            assertTrue(variant.contains("{\"group\":\"com.example\",\"name\":\"second\",\"version\":\"1.0\"}"), variant);
+        }
+    }
+}
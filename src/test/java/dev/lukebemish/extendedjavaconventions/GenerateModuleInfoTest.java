@@ -0,0 +1,417 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.module.ModuleDescriptor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenerateModuleInfoTest extends TestKitFixture {
+    private void modularLibrary() throws IOException {
+        write("lib/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.lib"
+                    exports "lib"
+                }
+            }
+            """);
+        write("lib/src/main/java/lib/Lib.java", """
+            package lib;
+
+            public class Lib {}
+            """);
+    }
+
+    // a jar published to a repository of the build's own, whose module name is only in its manifest
+    private void publishedJar(String group, String module, String version, String automaticModuleName) throws IOException {
+        var directory = projectDir.resolve("repo/" + group.replace('.', '/') + "/" + module + "/" + version);
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve(module + "-" + version + ".pom"), """
+            <project>
+                <modelVersion>4.0.0</modelVersion>
+                <groupId>%s</groupId>
+                <artifactId>%s</artifactId>
+                <version>%s</version>
+            </project>
+            """.formatted(group, module, version), StandardCharsets.UTF_8);
+        var manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Automatic-Module-Name", automaticModuleName);
+        try (var out = new JarOutputStream(Files.newOutputStream(directory.resolve(module + "-" + version + ".jar")), manifest)) {
+            out.putNextEntry(new JarEntry(automaticModuleName.replace('.', '/') + "/Marker.class"));
+            out.closeEntry();
+        }
+    }
+
+    private void appWithPublishedDependencies(String dependencies) throws IOException {
+        write("app/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            repositories {
+                maven {
+                    url = rootProject.file("repo")
+                }
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.app"
+                }
+            }
+
+            dependencies {
+            %s
+            }
+            """.formatted(dependencies));
+        write("app/src/main/java/app/App.java", """
+            package app;
+
+            public class App {}
+            """);
+    }
+
+    @Test
+    void requiresPlainSibling() throws IOException {
+        settings("plain", "app");
+        write("plain/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+            """);
+        write("plain/src/main/java/plain/Plain.java", """
+            package plain;
+
+            public class Plain {}
+            """);
+        write("app/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.app"
+                }
+            }
+
+            dependencies {
+                implementation(project(":plain"))
+            }
+            """);
+        write("app/src/main/java/app/App.java", """
+            package app;
+
+            public class App extends plain.Plain {}
+            """);
+
+        var result = build(":app:compileJava");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":app:compileJava").getOutcome());
+        // a project without a module descriptor is an automatic module named after its jar
+        var moduleInfo = read("app/build/generated/generatedModuleInfo/main/module-info.java");
+        assertTrue(moduleInfo.contains("requires plain;"), moduleInfo);
+    }
+
+    @Test
+    void readsModularSiblingFromClasses() throws IOException {
+        settings("lib", "app");
+        modularLibrary();
+        write("app/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.app"
+                }
+            }
+
+            dependencies {
+                implementation(project(":lib"))
+            }
+            """);
+        write("app/src/main/java/app/App.java", """
+            package app;
+
+            public class App extends lib.Lib {}
+            """);
+
+        var result = build(":app:compileJava");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":app:compileJava").getOutcome());
+        // the classes of a producer that compiles a module descriptor are a module without being packaged
+        assertNull(result.task(":lib:jar"));
+        var moduleInfo = read("app/build/generated/generatedModuleInfo/main/module-info.java");
+        assertTrue(moduleInfo.contains("requires test.lib;"), moduleInfo);
+    }
+
+    @Test
+    void explicitRequiresReplaceInferred() throws IOException {
+        settings("lib", "app");
+        modularLibrary();
+        write("app/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.app"
+                    requires("test.lib") {
+                        transitive = true
+                    }
+                }
+            }
+
+            dependencies {
+                implementation(project(":lib"))
+            }
+            """);
+        write("app/src/main/java/app/App.java", """
+            package app;
+
+            public class App extends lib.Lib {}
+            """);
+
+        var result = build(":app:compileJava");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":app:compileJava").getOutcome());
+        var moduleInfo = read("app/build/generated/generatedModuleInfo/main/module-info.java");
+        assertTrue(moduleInfo.contains("requires transitive test.lib;"), moduleInfo);
+        assertEquals(1, moduleInfo.split("test\\.lib;").length - 1, moduleInfo);
+    }
+
+    @Test
+    void explicitRequiresReplacePruned() throws IOException {
+        settings("lib", "app");
+        modularLibrary();
+        write("app/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.app"
+                    bytecode = true
+                    pruneRequires = true
+                    requires("test.lib")
+                }
+            }
+
+            dependencies {
+                implementation(project(":lib"))
+            }
+            """);
+        // nothing references the library, so pruning alone would make it static
+        write("app/src/main/java/app/App.java", """
+            package app;
+
+            public class App {}
+            """);
+
+        build(":app:classes");
+        try (var in = Files.newInputStream(projectDir.resolve("app/build/generated/generatedModuleInfo/main/module-info.class"))) {
+            var descriptor = ModuleDescriptor.read(in);
+            var requires = descriptor.requires().stream().filter(r -> r.name().equals("test.lib")).toList();
+            assertEquals(1, requires.size(), descriptor.toString());
+            assertEquals(Set.of(), requires.get(0).modifiers());
+        }
+    }
+
+    private void bytecodeApp(String declarations) throws IOException {
+        write("app/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.app"
+                    bytecode = true
+            %s
+                }
+            }
+            """.formatted(declarations));
+        write("app/src/main/java/app/App.java", """
+            package app;
+
+            public class App {}
+            """);
+    }
+
+    @Test
+    void rejectsBytecodeExportingMissingPackages() throws IOException {
+        settings("app");
+        bytecodeApp("""
+                    exports "app"
+                    exports "missing"
+            """);
+
+        var result = buildAndFail(":app:classes");
+        assertEquals(TaskOutcome.FAILED, result.task(":app:generateModuleInfo").getOutcome());
+        assertTrue(result.getOutput().contains("Generated module descriptor of test.app is invalid: Package missing not found in module"), result.getOutput());
+    }
+
+    @Test
+    void acceptsBytecodeOpeningResourcePackages() throws IOException {
+        settings("app");
+        bytecodeApp("""
+                    exports "app"
+                    opens "app.assets"
+            """);
+        write("app/src/main/resources/app/assets/icon.txt", "icon\n");
+
+        build(":app:classes");
+        try (var in = Files.newInputStream(projectDir.resolve("app/build/generated/generatedModuleInfo/main/module-info.class"))) {
+            var descriptor = ModuleDescriptor.read(in);
+            assertEquals(Set.of("app.assets"), descriptor.opens().stream().map(ModuleDescriptor.Opens::source).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void classifiesUninspectedFileDependencies() throws IOException {
+        settings("lib", "app");
+        modularLibrary();
+        // a directory of classes has no artifact type that module identities are read from
+        externalClasses("extra");
+        write("app/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.app"
+                }
+            }
+
+            dependencies {
+                implementation(files("../external/extra"))
+                implementation(project(":lib"))
+            }
+            """);
+        write("app/src/main/java/app/App.java", """
+            package app;
+
+            public class App extends lib.Lib {}
+            """);
+
+        var result = build(":app:compileJava");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":app:compileJava").getOutcome());
+        var classification = read("app/build/tmp/classifyCompileModulePath/classification.txt");
+        assertTrue(classification.contains("NON_MODULAR " + projectDir.resolve("external/extra").toRealPath()), classification);
+        assertTrue(classification.contains("EXPLICIT "), classification);
+    }
+
+    @Test
+    void runsTestsOnTheModulePathOfTheModuleTheyTest() throws IOException {
+        settings("lib", "app");
+        modularLibrary();
+        write("app/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.app"
+                }
+            }
+
+            dependencies {
+                implementation(project(":lib"))
+            }
+
+            tasks.register("printTestModulePath") {
+                def test = tasks.named("test", Test)
+                dependsOn(test)
+                doLast {
+                    println("arguments: " + test.get().allJvmArgs)
+                    println("classpath: " + test.get().classpath.files)
+                }
+            }
+            """);
+        write("app/src/main/java/app/App.java", """
+            package app;
+
+            public class App extends lib.Lib {}
+            """);
+
+        // the test source set has no sources, but its module path is still prepared for the tests of main
+        var result = build(":app:printTestModulePath");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":app:classifyRuntimeModulePath").getOutcome());
+        var output = result.getOutput();
+        var root = projectDir.toRealPath();
+        assertTrue(output.contains("@" + root.resolve("app/build/tmp/classifyRuntimeModulePath/module-path.args")), output);
+        var classpath = output.lines().filter(l -> l.startsWith("classpath: ")).findFirst().orElseThrow();
+        // the module under test and its dependencies move to the module path, and the tests stay on the classpath
+        assertTrue(classpath.contains(root.resolve("app/build/classes/java/test").toString()), classpath);
+        assertFalse(classpath.contains(root.resolve("app/build/classes/java/main").toString()), classpath);
+        assertFalse(classpath.contains(root.resolve("lib/build").toString()), classpath);
+        var arguments = read("app/build/tmp/classifyRuntimeModulePath/module-path.args");
+        assertTrue(arguments.contains(root.resolve("app/build/classes/java/main").toString()), arguments);
+        assertTrue(arguments.contains(root.resolve("lib/build").toString()), arguments);
+    }
+
+    @Test
+    void takesIndexedModulesWithoutTransformingThem() throws IOException {
+        settings("app");
+        publishedJar("com.example", "indexed", "1.0", "name.from.jar");
+        publishedJar("com.example", "plain", "1.0", "com.example.plain");
+        write("modules.txt", """
+            module-index 1
+            com.example:indexed:1.0 EXPLICIT name.from.index
+            """);
+        write("gradle.properties", "dev.lukebemish.extended-java-conventions.module-index=modules.txt\n");
+        appWithPublishedDependencies("""
+                implementation("com.example:indexed:1.0")
+                implementation("com.example:plain:1.0")
+            """);
+
+        var result = build(":app:generateModuleInfo", "--info");
+        var moduleInfo = read("app/build/generated/generatedModuleInfo/main/module-info.java");
+        assertTrue(moduleInfo.contains("requires name.from.index;"), moduleInfo);
+        assertTrue(moduleInfo.contains("requires com.example.plain;"), moduleInfo);
+        var transformed = result.getOutput().lines().filter(l -> l.contains("ModuleIdentityTransform")).toList();
+        assertTrue(transformed.stream().anyMatch(l -> l.contains("plain-1.0.jar")), transformed.toString());
+        assertFalse(transformed.stream().anyMatch(l -> l.contains("indexed-1.0.jar")), transformed.toString());
+    }
+
+    @Test
+    void bundledIndexCanBeTurnedOff() throws IOException {
+        settings("app");
+        // coordinates the bundled index knows, serving a jar that names its module differently
+        publishedJar("com.fasterxml.jackson.core", "jackson-annotations", "2.16.1", "name.from.jar");
+        appWithPublishedDependencies("""
+                implementation("com.fasterxml.jackson.core:jackson-annotations:2.16.1")
+            """);
+
+        build(":app:generateModuleInfo");
+        var moduleInfo = read("app/build/generated/generatedModuleInfo/main/module-info.java");
+        assertTrue(moduleInfo.contains("requires com.fasterxml.jackson.annotation;"), moduleInfo);
+
+        write("gradle.properties", "dev.lukebemish.extended-java-conventions.bundled-module-index=false\n");
+        build(":app:generateModuleInfo");
+        moduleInfo = read("app/build/generated/generatedModuleInfo/main/module-info.java");
+        assertTrue(moduleInfo.contains("requires name.from.jar;"), moduleInfo);
+    }
+}
@@ -0,0 +1,58 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ModuleIndexServiceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesLearnedEntriesToANewFile() throws IOException {
+        var indexFile = directory.resolve("index/modules.txt");
+        ModuleIndexService.merge(indexFile, Map.of("com.example:lib:1.0", new ModuleIdentity("com.example.lib", ModuleIdentity.Kind.EXPLICIT)));
+        assertEquals("""
+            module-index 1
+            com.example:lib:1.0 EXPLICIT com.example.lib
+            """, Files.readString(indexFile, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void keepsExistingEntries() throws IOException {
+        var indexFile = directory.resolve("modules.txt");
+        Files.writeString(indexFile, """
+            module-index 1
+            com.example:lib:1.0 EXPLICIT corrected.by.hand
+            """, StandardCharsets.UTF_8);
+        ModuleIndexService.merge(indexFile, Map.of(
+            "com.example:lib:1.0", new ModuleIdentity("com.example.lib", ModuleIdentity.Kind.EXPLICIT),
+            "com.example:other:1.0", new ModuleIdentity("other", ModuleIdentity.Kind.AUTOMATIC)
+        ));
+        assertEquals("""
+            module-index 1
+            com.example:lib:1.0 EXPLICIT corrected.by.hand
+            com.example:other:1.0 AUTOMATIC other
+            """, Files.readString(indexFile, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void leavesTheFileAloneWhenNothingIsNew() throws IOException {
+        var indexFile = directory.resolve("modules.txt");
+        var text = """
+            module-index 1
+            # kept as written
+            com.example:lib:1.0 EXPLICIT corrected.by.hand
+            """;
+        Files.writeString(indexFile, text, StandardCharsets.UTF_8);
+        ModuleIndexService.merge(indexFile, Map.of("com.example:lib:1.0", new ModuleIdentity("com.example.lib", ModuleIdentity.Kind.EXPLICIT)));
+        assertEquals(text, Files.readString(indexFile, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,75 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleIndexTest {
+    private static final ModuleIdentity JACKSON_ANNOTATIONS = new ModuleIdentity("com.fasterxml.jackson.annotation", ModuleIdentity.Kind.EXPLICIT);
+
+    @Test
+    void rejectsOtherVersions() {
+        var e = assertThrows(IllegalArgumentException.class, () -> ModuleIndex.parse("""
+            module-index 2
+            com.example:lib:1.0 EXPLICIT com.example.lib
+            """, "test index"));
+        assertTrue(e.getMessage().contains("expected a first line of 'module-index 1' but found 'module-index 2'"), e.getMessage());
+    }
+
+    @Test
+    void rejectsMissingHeader() {
+        assertThrows(IllegalArgumentException.class, () -> ModuleIndex.parse("""
+            com.example:lib:1.0 EXPLICIT com.example.lib
+            """, "test index"));
+    }
+
+    @Test
+    void rejectsLinesWithoutFullCoordinates() {
+        var e = assertThrows(IllegalArgumentException.class, () -> ModuleIndex.parse("""
+            module-index 1
+            com.example:lib EXPLICIT com.example.lib
+            """, "test index"));
+        assertTrue(e.getMessage().contains("Invalid line in test index"), e.getMessage());
+    }
+
+    @Test
+    void readsNothingFromAnEmptyFile() {
+        assertEquals(Map.of(), ModuleIndex.parse("\n# nothing yet\n", "test index").entries());
+    }
+
+    @Test
+    void roundTrips() {
+        var entries = Map.of(
+            "com.example:lib:1.0", new ModuleIdentity("com.example.lib", ModuleIdentity.Kind.EXPLICIT),
+            "com.example:plain:2.0", new ModuleIdentity("plain", ModuleIdentity.Kind.AUTOMATIC)
+        );
+        var text = ModuleIndex.format(entries);
+        assertEquals("""
+            module-index 1
+            com.example:lib:1.0 EXPLICIT com.example.lib
+            com.example:plain:2.0 AUTOMATIC plain
+            """, text);
+        assertEquals(entries, ModuleIndex.parse(text, "test index").entries());
+    }
+
+    @Test
+    void userEntriesOverrideBundledOnes() {
+        var bundled = ModuleIndex.bundled();
+        assertEquals(JACKSON_ANNOTATIONS, bundled.entries().get("com.fasterxml.jackson.core:jackson-annotations:2.16.1"));
+        var user = ModuleIndex.parse("""
+            module-index 1
+            com.fasterxml.jackson.core:jackson-annotations:2.16.1 AUTOMATIC jackson.annotations
+            com.example:lib:1.0 EXPLICIT com.example.lib
+            """, "test index");
+        var merged = bundled.with(user);
+        assertEquals(new ModuleIdentity("jackson.annotations", ModuleIdentity.Kind.AUTOMATIC), merged.entries().get("com.fasterxml.jackson.core:jackson-annotations:2.16.1"));
+        assertEquals(new ModuleIdentity("com.example.lib", ModuleIdentity.Kind.EXPLICIT), merged.entries().get("com.example:lib:1.0"));
+        assertEquals(bundled.entries().size() + 1, merged.entries().size());
+        // the bundled index itself is left as it was
+        assertEquals(JACKSON_ANNOTATIONS, bundled.entries().get("com.fasterxml.jackson.core:jackson-annotations:2.16.1"));
+    }
+}
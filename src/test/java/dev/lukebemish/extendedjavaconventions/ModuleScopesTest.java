@@ -0,0 +1,97 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentSelector;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleScopesTest {
+    // the resolution results are interfaces, so a graph is put together from proxies answering only what is asked
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Map<String, Object> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, arguments) -> switch (method.getName()) {
+            case "equals" -> proxy == arguments[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> type.getSimpleName() + answers;
+            default -> {
+                if (!answers.containsKey(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                yield answers.get(method.getName());
+            }
+        });
+    }
+
+    private static ResolvedComponentResult component(ComponentIdentifier id, ResolvedDependencyResult... dependencies) {
+        return stub(ResolvedComponentResult.class, Map.of("getId", id, "getDependencies", Set.of(dependencies), "getVariants", List.of()));
+    }
+
+    private static ResolvedDependencyResult external(ModuleComponentIdentifier id, ResolvedDependencyResult... dependencies) {
+        var selector = stub(ModuleComponentSelector.class, Map.of("getGroup", id.getGroup(), "getModule", id.getModule()));
+        return stub(ResolvedDependencyResult.class, Map.of("getRequested", selector, "getSelected", component(id, dependencies)));
+    }
+
+    private static ModuleComponentIdentifier externalId(String group, String module, String version) {
+        return stub(ModuleComponentIdentifier.class, Map.of("getGroup", group, "getModule", module, "getVersion", version));
+    }
+
+    private static final ModuleIndex INDEX = ModuleIndex.parse("""
+        module-index 1
+        com.example:indexed:1.0 EXPLICIT com.example.indexed
+        com.example:transitive:1.0 AUTOMATIC transitive
+        """, "test index");
+
+    @Test
+    void indexedComponentsAreNotInspected() {
+        var indexed = externalId("com.example", "indexed", "1.0");
+        var transitive = externalId("com.example", "transitive", "1.0");
+        var plain = externalId("com.example", "plain", "1.0");
+        var root = component(
+            stub(ProjectComponentIdentifier.class, Map.of("getProjectPath", ":app")),
+            external(indexed, external(transitive)),
+            external(plain)
+        );
+        var scopes = ModuleScopes.of(root, Map.of(
+            ModuleScopes.Scope.API, Set.of(),
+            ModuleScopes.Scope.COMPILE, Set.of("com.example:indexed", "com.example:plain"),
+            ModuleScopes.Scope.RUNTIME, Set.of("com.example:indexed", "com.example:plain")
+        ), INDEX);
+
+        assertFalse(scopes.inspects(indexed));
+        assertFalse(scopes.inspects(transitive));
+        assertTrue(scopes.inspects(plain));
+        assertTrue(scopes.inspects(plain, ModuleScopes.Scope.RUNTIME));
+        assertEquals(List.of("com.example.indexed", "transitive"), scopes.publishedModules(ModuleScopes.Scope.RUNTIME));
+        assertEquals(List.of(), scopes.publishedModules(ModuleScopes.Scope.API));
+    }
+
+    @Test
+    void projectsAreNeverLookedUp() {
+        var project = stub(ProjectComponentIdentifier.class, Map.of("getProjectPath", ":lib"));
+        var selector = stub(ProjectComponentSelector.class, Map.of("getProjectPath", ":lib"));
+        var dependency = stub(ResolvedDependencyResult.class, Map.of("getRequested", selector, "getSelected", component(project)));
+        var root = component(stub(ProjectComponentIdentifier.class, Map.of("getProjectPath", ":app")), dependency);
+        // even an index naming the project's coordinates is not consulted for it
+        var scopes = ModuleScopes.of(root, Map.of(
+            ModuleScopes.Scope.API, Set.of(),
+            ModuleScopes.Scope.COMPILE, Set.of(),
+            ModuleScopes.Scope.RUNTIME, Set.of("project :lib")
+        ), INDEX);
+
+        assertTrue(scopes.inspects(project, ModuleScopes.Scope.RUNTIME));
+        assertEquals(List.of(), scopes.publishedModules(ModuleScopes.Scope.RUNTIME));
+    }
+}
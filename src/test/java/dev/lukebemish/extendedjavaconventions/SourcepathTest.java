@@ -0,0 +1,120 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SourcepathTest extends TestKitFixture {
+    private void library(String name, String dependencies) throws IOException {
+        write(name + "/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            dependencies {
+            %s
+            }
+            """.formatted(dependencies));
+        write(name + "/src/main/java/" + name + "/" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + ".java", """
+            package %s;
+
+            public class %s {}
+            """.formatted(name, Character.toUpperCase(name.charAt(0)) + name.substring(1)));
+    }
+
+    @BeforeEach
+    void setup() throws IOException {
+        settings("base", "lib", "hidden", "app");
+        write("gradle.properties", """
+            dev.lukebemish.extended-java-conventions.sourcepath=true
+            """);
+        externalClasses("internal");
+        externalClasses("extra");
+        library("base", "");
+        library("lib", """
+                api(project(":base"))
+            """);
+        library("hidden", """
+                implementation(files("../external/internal"))
+            """);
+        // only its implementation uses the dependency, which consumers never see
+        write("hidden/src/main/java/hidden/Hidden.java", """
+            package hidden;
+
+            public class Hidden {
+                private internal.Internal internal;
+            }
+            """);
+        library("app", """
+                implementation(project(":lib"))
+                implementation(project(":hidden"))
+                runtimeOnly(files("../external/extra"))
+            """);
+    }
+
+    @Test
+    void compilesAgainstSiblingSources() throws IOException {
+        write("app/src/main/java/app/Uses.java", """
+            package app;
+
+            public class Uses {
+                lib.Lib lib;
+                base.Base base;
+            }
+            """);
+
+        var result = build(":app:compileJava");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":app:compileJava").getOutcome());
+        assertNull(result.task(":lib:compileJava"));
+        assertNull(result.task(":base:compileJava"));
+    }
+
+    @Test
+    void compilesAgainstClassesOfSiblingsWithImplementationDependencies() throws IOException {
+        write("app/src/main/java/app/Uses.java", """
+            package app;
+
+            public class Uses {
+                hidden.Hidden hidden;
+            }
+            """);
+
+        var result = build(":app:compileJava");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":app:compileJava").getOutcome());
+        assertEquals(TaskOutcome.SUCCESS, result.task(":hidden:compileJava").getOutcome());
+    }
+
+    @Test
+    void keepsRuntimeOnlyDependenciesOffTheClasspath() throws IOException {
+        write("app/src/main/java/app/Uses.java", """
+            package app;
+
+            public class Uses {
+                extra.Extra extra;
+            }
+            """);
+
+        var result = buildAndFail(":app:compileJava");
+        assertTrue(result.getOutput().contains("package extra does not exist"), result.getOutput());
+    }
+
+    @Test
+    void keepsImplementationDependenciesOfSiblingsOffTheClasspath() throws IOException {
+        write("app/src/main/java/app/Uses.java", """
+            package app;
+
+            public class Uses {
+                internal.Internal internal;
+            }
+            """);
+
+        var result = buildAndFail(":app:compileJava");
+        assertTrue(result.getOutput().contains("package internal does not exist"), result.getOutput());
+    }
+}
@@ -0,0 +1,92 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// a build of its own for each test, applying the plugin under test from the TestKit plugin classpath
+abstract class TestKitFixture {
+    @TempDir
+    Path projectDir;
+
+    void write(String path, String content) throws IOException {
+        var file = projectDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    String read(String path) throws IOException {
+        return Files.readString(projectDir.resolve(path), StandardCharsets.UTF_8);
+    }
+
+    void settings(String... includes) throws IOException {
+        var settings = new StringBuilder("""
+            plugins {
+                id 'dev.lukebemish.extended-java-conventions'
+            }
+
+            rootProject.name = 'test'
+            """);
+        for (var include : includes) {
+            settings.append("include '").append(include).append("'\n");
+        }
+        write("settings.gradle", settings.toString());
+    }
+
+    // classes compiled outside of the build, like any dependency that is not a project
+    void externalClasses(String name) throws IOException {
+        var className = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        write("external/src/" + name + "/" + className + ".java", """
+            package %s;
+
+            public class %s {}
+            """.formatted(name, className));
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var result = compiler.run(null, null, null, "-d", projectDir.resolve("external/" + name).toString(), projectDir.resolve("external/src/" + name + "/" + className + ".java").toString());
+        assertEquals(0, result);
+    }
+
+    // the same classes packaged as a jar, with no Automatic-Module-Name, so that its module name is derived from the
+    // file name
+    void externalJar(String name, String fileName) throws IOException {
+        externalClasses(name);
+        var classes = projectDir.resolve("external/" + name);
+        try (var out = new JarOutputStream(Files.newOutputStream(projectDir.resolve("external/" + fileName)));
+             var files = Files.walk(classes)) {
+            for (var file : files.filter(Files::isRegularFile).toList()) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace('\\', '/')));
+                out.write(Files.readAllBytes(file));
+                out.closeEntry();
+            }
+        }
+    }
+
+    GradleRunner runner(String... arguments) {
+        var allArguments = new ArrayList<>(List.of(arguments));
+        allArguments.add("--stacktrace");
+        return GradleRunner.create()
+            .withProjectDir(projectDir.toFile())
+            .withPluginClasspath()
+            .withArguments(allArguments);
+    }
+
+    BuildResult build(String... arguments) {
+        return runner(arguments).build();
+    }
+
+    BuildResult buildAndFail(String... arguments) {
+        return runner(arguments).buildAndFail();
+    }
+}
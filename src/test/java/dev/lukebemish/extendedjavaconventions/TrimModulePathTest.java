@@ -0,0 +1,96 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrimModulePathTest extends TestKitFixture {
+    @Test
+    void trimsTheModulePathOfTestsOfAModule() throws IOException {
+        settings("extra", "lib", "app");
+        write("extra/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.extra"
+                }
+            }
+            """);
+        write("extra/src/main/java/extra/Extra.java", """
+            package extra;
+
+            public class Extra {}
+            """);
+        // a module that depends on extra without requiring it, so extra is on the module path of app but unreachable
+        write("lib/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            dependencies {
+                implementation(project(":extra"))
+            }
+            """);
+        write("lib/src/main/java/module-info.java", """
+            module test.lib {
+                exports lib;
+            }
+            """);
+        write("lib/src/main/java/lib/Lib.java", """
+            package lib;
+
+            public class Lib {}
+            """);
+        write("app/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "test.app"
+                }
+                // a second call for the same task changes nothing
+                trimModulePath(sourceSets.main, tasks.test)
+                trimModulePath(sourceSets.main, tasks.test)
+            }
+
+            dependencies {
+                implementation(project(":lib"))
+            }
+
+            tasks.register("printTestModulePath") {
+                def test = tasks.named("test", Test)
+                dependsOn(test)
+                doLast {
+                    println("arguments: " + test.get().allJvmArgs)
+                }
+            }
+            """);
+        write("app/src/main/java/app/App.java", """
+            package app;
+
+            public class App extends lib.Lib {}
+            """);
+
+        var result = build(":app:printTestModulePath");
+        var root = projectDir.toRealPath();
+        var output = result.getOutput().lines().filter(l -> l.startsWith("arguments: ")).findFirst().orElseThrow();
+        // the test takes the trimmed module path in place of the one of the module it tests
+        assertTrue(output.contains("@" + root.resolve("app/build/tmp/trimTestModulePath/jvm.args")), output);
+        assertFalse(output.contains("classifyRuntimeModulePath"), output);
+        var arguments = read("app/build/tmp/trimTestModulePath/jvm.args");
+        assertTrue(arguments.contains(root.resolve("app/build/classes/java/main").toString()), arguments);
+        assertTrue(arguments.contains(root.resolve("lib/build").toString()), arguments);
+        assertTrue(arguments.contains("\"ALL-MODULE-PATH\""), arguments);
+        assertFalse(arguments.contains(root.resolve("extra/build").toString()), arguments);
+        var unreachable = read("app/build/tmp/trimTestModulePath/unreachable.txt");
+        assertTrue(unreachable.contains(root.resolve("extra/build").toString()), unreachable);
+    }
+}
@@ -0,0 +1,142 @@
+package dev.lukebemish.extendedjavaconventions;
+
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValidateModuleGraphTest extends TestKitFixture {
+    private void module(String project, String name, String dependencies) throws IOException {
+        module(project, name, "", dependencies);
+    }
+
+    private void module(String project, String name, String declarations, String dependencies) throws IOException {
+        write(project + "/build.gradle", """
+            plugins {
+                id 'java-library'
+            }
+
+            extendedJavaConventions {
+                generateModuleInfo(sourceSets.main) {
+                    name = "%s"
+                    validateModuleGraph = true
+            %s
+                }
+            }
+
+            dependencies {
+            %s
+            }
+            """.formatted(name, declarations, dependencies));
+    }
+
+    private void source(String project, String pkg, String className) throws IOException {
+        write(project + "/src/main/java/" + pkg.replace('.', '/') + "/" + className + ".java", """
+            package %s;
+
+            public class %s {}
+            """.formatted(pkg, className));
+    }
+
+    private void assertProblem(String report, String severity, String kind, String scope, String message) {
+        assertTrue(report.contains("{\"severity\": \"" + severity + "\", \"kind\": \"" + kind + "\", \"scope\": \"" + scope + "\", \"message\": \"" + message + "\"}"), report);
+    }
+
+    @Test
+    void followsSiblingsThatPublishTheirModuleName() throws IOException {
+        settings("impl", "app");
+        module("impl", "test.impl", "");
+        source("impl", "app", "Impl");
+        module("app", "test.app", """
+                runtimeOnly(project(":impl"))
+            """);
+        source("app", "app", "App");
+
+        var result = buildAndFail(":app:compileJava");
+        assertEquals(TaskOutcome.FAILED, result.task(":app:validateModuleGraph").getOutcome());
+        // the sibling is described from its sources, so its compilation is never waited on
+        assertNull(result.task(":impl:compileJava"));
+        assertNull(result.task(":app:compileJava"));
+        var report = read("app/build/reports/validateModuleGraph/report.json");
+        assertProblem(report, "error", "split-package", "runtime", "Package app is in more than one module: test.app, test.impl");
+    }
+
+    @Test
+    void reportsMissingModules() throws IOException {
+        settings("app");
+        module("app", "test.app", """
+                    requires("test.missing")
+            """, "");
+        source("app", "app", "App");
+
+        var result = buildAndFail(":app:compileJava");
+        assertEquals(TaskOutcome.FAILED, result.task(":app:validateModuleGraph").getOutcome());
+        assertNull(result.task(":app:compileJava"));
+        var report = read("app/build/reports/validateModuleGraph/report.json");
+        assertTrue(report.contains("\"module\": \"test.app\""), report);
+        assertProblem(report, "error", "missing-module", "compile", "test.app requires test.missing, which is not on the compile classpath");
+        assertProblem(report, "error", "missing-module", "runtime", "Module test.missing, required by test.app, is not on the runtime classpath");
+    }
+
+    @Test
+    void reportsDuplicateModules() throws IOException {
+        settings("first", "second", "app");
+        module("first", "test.shared", "");
+        source("first", "first", "First");
+        module("second", "test.shared", "");
+        source("second", "second", "Second");
+        module("app", "test.app", """
+                runtimeOnly(project(":first"))
+                runtimeOnly(project(":second"))
+            """);
+        source("app", "app", "App");
+
+        var result = buildAndFail(":app:compileJava");
+        assertEquals(TaskOutcome.FAILED, result.task(":app:validateModuleGraph").getOutcome());
+        assertNull(result.task(":app:compileJava"));
+        var report = read("app/build/reports/validateModuleGraph/report.json");
+        assertProblem(report, "error", "duplicate-module", "runtime", "Module test.shared is provided by more than one entry: project ':first', project ':second'");
+    }
+
+    @Test
+    void reportsPackagesSplitWithSystemModules() throws IOException {
+        settings("app");
+        module("app", "test.app", "");
+        source("app", "javax.net", "App");
+
+        var result = buildAndFail(":app:compileJava");
+        assertEquals(TaskOutcome.FAILED, result.task(":app:validateModuleGraph").getOutcome());
+        assertNull(result.task(":app:compileJava"));
+        var report = read("app/build/reports/validateModuleGraph/report.json");
+        assertProblem(report, "error", "split-package", "runtime", "Package javax.net is in module test.app and in system module java.base");
+    }
+
+    @Test
+    void warnsOfDerivedAutomaticNamesBeforeCompiling() throws IOException {
+        settings("app");
+        externalJar("extra", "extra-1.0.jar");
+        module("app", "test.app", """
+                implementation(files("../external/extra-1.0.jar"))
+            """);
+        source("app", "app", "App");
+
+        var result = build(":app:compileJava");
+        var tasks = result.getTasks().stream().map(BuildTask::getPath).toList();
+        assertEquals(TaskOutcome.SUCCESS, result.task(":app:validateModuleGraph").getOutcome());
+        assertEquals(TaskOutcome.SUCCESS, result.task(":app:compileJava").getOutcome());
+        assertTrue(tasks.indexOf(":app:validateModuleGraph") < tasks.indexOf(":app:compileJava"), tasks.toString());
+        assertTrue(result.getOutput().contains("Warning: Automatic module extra (extra-1.0.jar) has a name derived from its file name"), result.getOutput());
+        var report = read("app/build/reports/validateModuleGraph/report.json");
+        assertProblem(report, "warning", "derived-automatic-name", "runtime", "Automatic module extra (extra-1.0.jar) has a name derived from its file name, which changes if the file is renamed");
+    }
+
+    @Test
+    void quotesControlCharacters() {
+        assertEquals("\"a\\\"b\\\\c\\nd\\re\\tf\\u0001g\"", ValidateModuleGraphTask.quote("a\"b\\c\nd\re\tf\u0001g"));
+    }
+}
@@ -0,0 +1,9 @@
+package test.othermodule;
+
+import test.testmodule.Test;
+
+public class Other {
+    public static void main(String[] args) {
+        Test.main(args);
+    }
+}